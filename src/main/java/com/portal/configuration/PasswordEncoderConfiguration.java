@@ -0,0 +1,70 @@
+package com.portal.configuration;
+
+import com.portal.utility.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/* New hashes are stored as {algorithm}hash, bcrypt hashes also carry their cost, so every hash says how it was made.
+ * DaoAuthenticationProvider re-hashes a password on successful login whenever its stored hash
+ * uses another algorithm or a lower cost than configured here (see UserServiceImpl.updatePassword).
+ * All hashing runs on the bounded pool of BoundedPasswordEncoder, never on request threads */
+@Configuration
+public class PasswordEncoderConfiguration {
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+    private static final int CALIBRATION_STRENGTH = 10;
+    private static final int MAXIMUM_BCRYPT_STRENGTH = 16;
+    private static final int CALIBRATION_ROUNDS = 3;
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(@Value("${portal.password.algorithm:bcrypt}") String algorithm,
+                                                  @Value("${portal.password.target-hash-millis:250}") long targetHashMillis,
+                                                  @Value("${portal.password.minimum-bcrypt-strength:10}") int minimumStrength,
+                                                  @Value("${portal.password.hashing.queue-capacity:64}") int queueCapacity,
+                                                  MeterRegistry meterRegistry) {
+        int strength = calibrateBCryptStrength(targetHashMillis, minimumStrength);
+        BCryptPasswordEncoder bCryptPasswordEncoder = new BCryptPasswordEncoder(strength);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, bCryptPasswordEncoder);
+        // Memory hard and cheaper on CPU than bcrypt at a comparable security level
+        encoders.put(ARGON2, new Argon2PasswordEncoder());
+
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(algorithm, encoders);
+        // Hashes stored before the {id} prefix existed are plain bcrypt
+        passwordEncoder.setDefaultPasswordEncoderForMatches(bCryptPasswordEncoder);
+        LOGGER.info("Hashing new passwords with " + algorithm + ", bcrypt strength " + strength);
+        return new BoundedPasswordEncoder(passwordEncoder, queueCapacity, meterRegistry);
+    }
+
+    /* Every extra bcrypt round doubles the cost, so one measurement is enough to pick the strength
+     * that gets closest to the target without going over it on this machine */
+    private int calibrateBCryptStrength(long targetHashMillis, int minimumStrength) {
+        BCryptPasswordEncoder calibrationEncoder = new BCryptPasswordEncoder(CALIBRATION_STRENGTH);
+        calibrationEncoder.encode("calibration"); // Warm up
+
+        long fastestNanos = Long.MAX_VALUE;
+        for(int round = 0; round < CALIBRATION_ROUNDS; round++){
+            long start = System.nanoTime();
+            calibrationEncoder.encode("calibration");
+            fastestNanos = Math.min(fastestNanos, System.nanoTime() - start);
+        }
+
+        double ratio = targetHashMillis * 1_000_000d / Math.max(fastestNanos, 1);
+        int strength = CALIBRATION_STRENGTH + (int) Math.floor(Math.log(ratio) / Math.log(2));
+        LOGGER.info("Calibrated bcrypt: strength " + CALIBRATION_STRENGTH + " takes " + fastestNanos / 1_000_000d + "ms");
+        return Math.max(minimumStrength, Math.min(MAXIMUM_BCRYPT_STRENGTH, strength));
+    }
+}
@@ -0,0 +1,37 @@
+package com.portal.configuration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* Limits used by RateLimitFilter. Endpoint limits are keyed by ant pattern, the first matching pattern wins
+ * and gets its own bucket on top of the caller's general bucket */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "portal.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private Limit authenticated = new Limit(60, 20);
+    private Limit anonymous = new Limit(10, 1);
+    private Map<String, Limit> endpoints = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Limit {
+        private int capacity;
+        private double tokensPerSecond;
+
+        public Limit() {
+        }
+
+        public Limit(int capacity, double tokensPerSecond) {
+            this.capacity = capacity;
+            this.tokensPerSecond = tokensPerSecond;
+        }
+    }
+}
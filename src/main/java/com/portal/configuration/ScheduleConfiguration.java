@@ -1,56 +1,114 @@
 package com.portal.configuration;
 
-import com.portal.domain.Users;
+import com.google.common.base.Suppliers;
 import com.portal.enumeration.Role;
-import com.portal.repository.UserRepository;
-import lombok.AllArgsConstructor;
+import com.portal.service.TokenEpochService;
+import com.portal.service.UserSearchIndex;
+import com.portal.service.UserSummaryCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import net.bytebuddy.utility.RandomString;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
 
 import static com.portal.enumeration.Role.*;
 
 @Configuration
 @EnableScheduling
 @Slf4j
-@AllArgsConstructor
 public class ScheduleConfiguration {
+    private static final String DEMO_PASSWORD = "password";
+    private static final String DELETE_USERS_SQL = "delete from users";
+    // Rows keyed on the users being deleted. Left behind, a refresh token would sign in whoever registers
+    // the username next and images would keep their files from the ImageFileStore sweep
+    private static final String[] DELETE_USER_DATA_SQL = {
+            "delete from refresh_token", "delete from user_image", "delete from login_attempt"};
+    private static final String NEXT_IDS_SQL = "select nextval('hibernate_sequence') from generate_series(1, ?)";
+    private static final String INSERT_USER_SQL = "insert into users (id, user_id, first_name, last_name, username, " +
+            "password, email, join_date, role, is_active, is_not_locked) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final List<DemoUser> DEMO_USERS = Arrays.asList(
+            new DemoUser("Jamie", "James", "Jamie", ROLE_SUPER_ADMIN),
+            new DemoUser("Jane", "Brown", "Jane", ROLE_ADMIN),
+            new DemoUser("Kimberly", "Davis", "Kimmy", ROLE_MANAGER),
+            new DemoUser("Pam", "Green", "Pam", ROLE_HR),
+            new DemoUser("John", "Brown", "Johnny", ROLE_USER));
 
-    private final UserRepository userRepository;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserSummaryCache userSummaryCache;
+    private final UserSearchIndex userSearchIndex;
+    private final TokenEpochService tokenEpochService;
+    private final Timer cleanUpTimer;
+    // Every demo user has the same password, so it is hashed once on the first reset instead of once per user per night
+    private final Supplier<String> demoPasswordHash;
 
+    public ScheduleConfiguration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                 PasswordEncoder passwordEncoder, UserSummaryCache userSummaryCache,
+                                 UserSearchIndex userSearchIndex, TokenEpochService tokenEpochService,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userSummaryCache = userSummaryCache;
+        this.userSearchIndex = userSearchIndex;
+        this.tokenEpochService = tokenEpochService;
+        this.cleanUpTimer = Timer.builder("portal.user.reset")
+                .description("Time taken to replace every user with the demo users")
+                .register(meterRegistry);
+        this.demoPasswordHash = Suppliers.memoize(() -> passwordEncoder.encode(DEMO_PASSWORD))::get;
+    }
+
+    /* Replaces every user with the demo users in one transaction: the deletes, one query for the ids and one batched
+     * insert. Plain deletes rather than truncate, which would lock out readers of the tables until the commit.
+     * The demo users are inserted with a new token epoch, so the tokens of the deleted users are rejected once
+     * the epochs kept in memory are dropped after the commit */
 //    @Scheduled(cron = "0 32 14 * * *", zone = "GMT-5")
     @Scheduled(cron = "0 0 0 * * *", zone = "GMT-5")
     public void cleanUp(){
-        userRepository.deleteAll();
-
-        userRepository.save(buildUser("Jamie", "James", "Jamie", ROLE_SUPER_ADMIN));
-        userRepository.save(buildUser("Jane", "Brown", "Jane", ROLE_ADMIN));
-        userRepository.save(buildUser("Kimberly", "Davis", "Kimmy", ROLE_MANAGER));
-        userRepository.save(buildUser("Pam", "Green", "Pam", ROLE_HR));
-        userRepository.save(buildUser("John", "Brown", "Johnny", ROLE_USER));
-
+        String passwordHash = demoPasswordHash.get();
+        long start = System.nanoTime();
+        int deleted = cleanUpTimer.record(() -> transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(DELETE_USER_DATA_SQL);
+            int rows = jdbcTemplate.update(DELETE_USERS_SQL);
+            List<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, DEMO_USERS.size());
+            Timestamp joinDate = new Timestamp(System.currentTimeMillis());
+            List<Object[]> users = new ArrayList<>(DEMO_USERS.size());
+            for(int i = 0; i < DEMO_USERS.size(); i++){
+                DemoUser user = DEMO_USERS.get(i);
+                users.add(new Object[]{ids.get(i), RandomString.make(10), user.firstName, user.lastName, user.username,
+                        passwordHash, user.firstName + "@portal.com", joinDate, user.role.name(), true, true});
+            }
+            jdbcTemplate.batchUpdate(INSERT_USER_SQL, users);
+            return rows;
+        }));
+        tokenEpochService.forgetAll();
+        userSummaryCache.invalidateAll();
+        userSearchIndex.rebuild();
+        log.info("Replaced " + deleted + " users with " + DEMO_USERS.size() + " demo users in "
+                + (System.nanoTime() - start) / 1_000_000 + "ms");
     }
 
-    private Users buildUser(String firstName, String lastName, String username, Role role){
-        Users user = new Users();
-        user.setFirstName(firstName);
-        user.setLastName(lastName);
-        user.setUsername(username);
-        user.setEmail(firstName+"@portal.com");
-        user.setRole(role.name());
-        user.setUserId(RandomString.make(10));
-        user.setJoinDate(new Date());
-        user.setActive(true);
-        user.setNotLocked(true);
-        user.setPassword(bCryptPasswordEncoder.encode("password"));
-        user.setAuthorities(role.getAuthorities());
-
-        return user;
+    private static class DemoUser {
+        private final String firstName;
+        private final String lastName;
+        private final String username;
+        private final Role role;
+
+        DemoUser(String firstName, String lastName, String username, Role role) {
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.username = username;
+            this.role = role;
+        }
     }
 }
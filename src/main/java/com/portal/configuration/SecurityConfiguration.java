@@ -4,10 +4,12 @@ import com.portal.constant.SecurityConstant;
 import com.portal.filter.JwtAccessDeniedHandler;
 import com.portal.filter.JwtAuthenticationEntryPoint;
 import com.portal.filter.JwtAuthorizationFilter;
+import com.portal.filter.RateLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
@@ -16,7 +18,7 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
@@ -24,28 +26,31 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableGlobalMethodSecurity(prePostEnabled = true) //Allow security on method level with @Valid keyword
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     private final JwtAuthorizationFilter jwtAuthorizationFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final JwtAccessDeniedHandler jwtAccessDeniedHandler;
     private final JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint;
     private final UserDetailsService userDetailsService;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordEncoder passwordEncoder;
 
     @Autowired
     public SecurityConfiguration(JwtAuthorizationFilter jwtAuthorizationFilter,
+                                 RateLimitFilter rateLimitFilter,
                                  JwtAccessDeniedHandler jwtAccessDeniedHandler,
                                  JwtAuthenticationEntryPoint jwtAuthenticationEntryPoint,
                                  @Qualifier("userDetailsService") UserDetailsService userDetailsService,
-                                 BCryptPasswordEncoder bCryptPasswordEncoder) {
+                                 PasswordEncoder passwordEncoder) {
         this.jwtAuthorizationFilter = jwtAuthorizationFilter;
+        this.rateLimitFilter = rateLimitFilter;
         this.jwtAccessDeniedHandler = jwtAccessDeniedHandler;
         this.jwtAuthenticationEntryPoint = jwtAuthenticationEntryPoint;
         this.userDetailsService = userDetailsService;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordEncoder = passwordEncoder;
     }
 
 
     @Override
     protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(userDetailsService).passwordEncoder(bCryptPasswordEncoder);
+        auth.userDetailsService(userDetailsService).passwordEncoder(passwordEncoder);
     }
 
     @Override
@@ -55,14 +60,16 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS) //Remove session feature
                .and()
                .authorizeRequests()
-               .antMatchers(SecurityConstant.PUBLIC_URLS).permitAll() //Allow these urls without auth
+               .antMatchers(HttpMethod.POST, SecurityConstant.PUBLIC_POST_URLS).permitAll() //Allow these urls without auth
+               .antMatchers(HttpMethod.GET, SecurityConstant.PUBLIC_GET_URLS).permitAll()
                .anyRequest().authenticated() // Authenticate everything else
                .and()
                .exceptionHandling().accessDeniedHandler(jwtAccessDeniedHandler) //Use custom access denied handler
                .authenticationEntryPoint(jwtAuthenticationEntryPoint)
                .and()
-               .addFilterBefore(jwtAuthorizationFilter, UsernamePasswordAuthenticationFilter.class); // Add custom filter
+               .addFilterBefore(jwtAuthorizationFilter, UsernamePasswordAuthenticationFilter.class) // Add custom filter
                                                                                                      // jwtAuthorizationFilter before UsernamePasswordAuthenticationFilter
+               .addFilterAfter(rateLimitFilter, JwtAuthorizationFilter.class); // Limit once we know who is calling
 
     }
 
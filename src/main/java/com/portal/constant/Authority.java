@@ -1,9 +1,14 @@
 package com.portal.constant;
 
 public class Authority {
-    public static final String[] USER_AUTHORITIES = {"user:read"};
-    public static final String[] HR_AUTHORITIES = {"user:read", "user:update"};
-    public static final String[] MANAGER_AUTHORITIES = {"user:read", "user:update"};
-    public static final String[] ADMIN_AUTHORITIES = {"user:read", "user:create", "user:update"};
-    public static final String[] SUPER_ADMIN_AUTHORITIES = {"user:read", "user:create", "user:update", "user:delete"};
+    public static final String USER_READ = "user:read";
+    public static final String USER_CREATE = "user:create";
+    public static final String USER_UPDATE = "user:update";
+    public static final String USER_DELETE = "user:delete";
+
+    public static final String[] USER_AUTHORITIES = {USER_READ};
+    public static final String[] HR_AUTHORITIES = {USER_READ, USER_UPDATE};
+    public static final String[] MANAGER_AUTHORITIES = {USER_READ, USER_UPDATE};
+    public static final String[] ADMIN_AUTHORITIES = {USER_READ, USER_CREATE, USER_UPDATE};
+    public static final String[] SUPER_ADMIN_AUTHORITIES = {USER_READ, USER_CREATE, USER_UPDATE, USER_DELETE};
 }
@@ -1,16 +1,32 @@
 package com.portal.constant;
 
 public class SecurityConstant {
-    public static final long EXPIRATION_TIME = 432_000_000; //5 days expressed in milliseconds
+    public static final long EXPIRATION_TIME = 900_000; //15 minutes expressed in milliseconds
+    public static final long REFRESH_TOKEN_EXPIRATION_TIME = 432_000_000; //5 days expressed in milliseconds
+    public static final long REFRESH_TOKEN_CLEANUP_INTERVAL = 3_600_000; //1 hour expressed in milliseconds
+    public static final long LOGIN_ATTEMPT_WINDOW = 900_000; //15 minutes expressed in milliseconds
+    public static final long LOGIN_ATTEMPT_CLEANUP_INTERVAL = 300_000; //5 minutes expressed in milliseconds
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String JWT_TOKEN_HEADER = "Jwt-Token";
+    public static final String REFRESH_TOKEN_HEADER = "Refresh-Token";
     public static final String TOKEN_CANNOT_BE_VERIFIED = "Token cannot be verified";
+    public static final String INVALID_REFRESH_TOKEN = "Your session has expired. Please log in again";
     public static final String BARCA_JAMES_LLC = "Barca James, LLC";
     public static final String BARCA_JAMES_ADMINISTRATION = "User Management Portal";
     public static final String AUTHORITIES = "Authorities";
+    public static final String TOKEN_EPOCH = "Epoch";
+    public static final String PERMISSIONS = "Perms"; // Bitmask of com.portal.enumeration.Permission, compact tokens only
     public static final String FORBIDDEN_MESSAGE = "You need to log in to access this page";
     public static final String ACCESS_DENIED_MESSAGE = "You do not have permission to access this page";
     public static final String OPTIONS_HTTP_METHOD = "OPTIONS";
+    public static final String RATE_LIMIT_LIMIT_HEADER = "X-RateLimit-Limit";
+    public static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+    public static final String RATE_LIMIT_RESET_HEADER = "X-RateLimit-Reset";
+    public static final String TOO_MANY_REQUESTS_MESSAGE = "Too many requests. Please slow down and try again";
+    public static final long RATE_LIMIT_BUCKET_EVICTION_INTERVAL = 60_000; //1 minute expressed in milliseconds
+    public static final long VERIFIED_TOKEN_CACHE_SIZE = 10_000; //Max number of decoded tokens kept in memory
 //    public static final String[] PUBLIC_URLS = {"**"};
-    public static final String[] PUBLIC_URLS = {"/user/login", "/user/register"};
+    public static final String[] PUBLIC_POST_URLS = {"/user/login", "/user/register", "/user/token/refresh"};
+    // Profile images are loaded by <img> tags, which cannot send the token. Nothing but images lives under this prefix
+    public static final String[] PUBLIC_GET_URLS = {"/user/images/**"};
 }
@@ -4,6 +4,13 @@ package com.portal.constant;
 public class UserImplServiceConstant {
     public static final String USERNAME_ALREADY_EXISTS = "Username already exists";
     public static final String EMAIL_ALREADY_EXISTS = "Email already exists";
+    // Unique indexes on lower(username) and lower(email), see V2__unique_case_insensitive_user_indexes.sql
+    public static final String USERNAME_UNIQUE_INDEX = "ux_users_username";
+    public static final String EMAIL_UNIQUE_INDEX = "ux_users_email";
     public static final String NO_USER_FOUND_BY_USERNAME = "No user found by username ";
     public static final String NO_USER_FOUND_BY_EMAIL = "No user found for email: ";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAXIMUM_PAGE_SIZE = 200;
+    public static final int DEFAULT_SEARCH_LIMIT = 10;
+    public static final int MAXIMUM_SEARCH_LIMIT = 50;
 }
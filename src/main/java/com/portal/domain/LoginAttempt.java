@@ -0,0 +1,26 @@
+package com.portal.domain;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/* Table behind JdbcLoginAttemptStore, one row per counted key (username or ip address) */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Entity
+@Table(indexes = {
+        @Index(name = "ix_login_attempt_expires_at", columnList = "expiresAt")
+})
+public class LoginAttempt implements Serializable {
+    @Id
+    @Column(nullable = false, updatable = false)
+    private String attemptKey;
+    @Column(nullable = false)
+    private int attempts;
+    @Column(nullable = false)
+    private Date expiresAt;
+}
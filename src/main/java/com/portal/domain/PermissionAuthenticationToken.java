@@ -0,0 +1,23 @@
+package com.portal.domain;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/* Authentication built from a verified JWT. Carries the permission set of the token next to its authorities
+ * so PermissionSetEvaluator checks a bit instead of searching the authority strings */
+public class PermissionAuthenticationToken extends UsernamePasswordAuthenticationToken {
+    private static final long serialVersionUID = 1L;
+    private final PermissionSet permissions;
+
+    public PermissionAuthenticationToken(String username, Collection<? extends GrantedAuthority> authorities,
+                                         PermissionSet permissions) {
+        super(username, null, authorities);
+        this.permissions = permissions;
+    }
+
+    public PermissionSet getPermissions() {
+        return permissions;
+    }
+}
@@ -0,0 +1,78 @@
+package com.portal.domain;
+
+import com.portal.enumeration.Permission;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/* Immutable set of permissions backed by a Permission bitmask. There is one instance per mask, built up front,
+ * so every user of a role shares the same set and checking a permission is a single and */
+public final class PermissionSet {
+    private static final PermissionSet[] SETS_BY_MASK = new PermissionSet[1 << Permission.values().length];
+    public static final PermissionSet NONE;
+
+    static {
+        for(int mask = 0; mask < SETS_BY_MASK.length; mask++){
+            SETS_BY_MASK[mask] = new PermissionSet(mask);
+        }
+        NONE = SETS_BY_MASK[0];
+    }
+
+    private final int mask;
+    private final List<GrantedAuthority> grantedAuthorities;
+    private final List<String> authorities;
+
+    private PermissionSet(int mask) {
+        this.mask = mask;
+        this.grantedAuthorities = Permission.toAuthorities(mask);
+        List<String> authorities = new ArrayList<>();
+        for(GrantedAuthority grantedAuthority : grantedAuthorities){
+            authorities.add(grantedAuthority.getAuthority());
+        }
+        this.authorities = Collections.unmodifiableList(authorities);
+    }
+
+    public static PermissionSet of(int mask) {
+        if(!Permission.isValidMask(mask)){
+            throw new IllegalArgumentException("No permission set for mask " + mask);
+        }
+        return SETS_BY_MASK[mask];
+    }
+
+    // Authorities without a permission bit grant nothing and are left out
+    public static PermissionSet of(Collection<? extends GrantedAuthority> grantedAuthorities) {
+        int mask = 0;
+        for(GrantedAuthority grantedAuthority : grantedAuthorities){
+            Permission permission = Permission.fromAuthority(grantedAuthority.getAuthority());
+            if(permission != null){
+                mask |= permission.getMask();
+            }
+        }
+        return SETS_BY_MASK[mask];
+    }
+
+    public boolean has(Permission permission) {
+        return (mask & permission.getMask()) != 0;
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    // Shared and unmodifiable, the same list for every call
+    public List<GrantedAuthority> getGrantedAuthorities() {
+        return grantedAuthorities;
+    }
+
+    public List<String> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String toString() {
+        return authorities.toString();
+    }
+}
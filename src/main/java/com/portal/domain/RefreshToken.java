@@ -0,0 +1,32 @@
+package com.portal.domain;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/* Only the SHA-256 of the token is stored, the raw value is handed to the client once */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Entity
+@Table(indexes = {
+        @Index(name = "ux_refresh_token_token_hash", columnList = "tokenHash", unique = true),
+        @Index(name = "ix_refresh_token_expires_at", columnList = "expiresAt"),
+        @Index(name = "ix_refresh_token_username", columnList = "username")
+})
+public class RefreshToken implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(nullable = false, updatable = false)
+    private Long id;
+    @Column(nullable = false, length = 64)
+    private String tokenHash;
+    @Column(nullable = false)
+    private String username;
+    private Date createdAt;
+    @Column(nullable = false)
+    private Date expiresAt;
+}
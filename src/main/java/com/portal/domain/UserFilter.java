@@ -0,0 +1,69 @@
+package com.portal.domain;
+
+import com.portal.enumeration.Role;
+import com.portal.exception.domain.InvalidFilterException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+/* Which users the list shows. Every field is optional and they all have to match, null means any */
+@Getter
+@ToString
+@AllArgsConstructor
+public class UserFilter {
+    public static final String NO_SUCH_ROLE = "No role: ";
+    public static final String NOT_A_BOOLEAN = "Expected true or false for %s, got: %s";
+    public static final String NOT_A_DATE = "Expected a date such as 2021-12-31 for %s, got: %s";
+    public static final UserFilter NONE = new UserFilter(null, null, null, null, null);
+    private final Role role;
+    private final Boolean active;
+    private final Boolean notLocked;
+    private final Date joinedFrom; // Inclusive
+    private final Date joinedBefore; // Exclusive, so a month is joinedFrom=2021-12-01&joinedBefore=2022-01-01
+
+    // Dates are whole days in the server time zone, the one join dates are written in
+    public static UserFilter fromParameters(String role, String active, String notLocked, String joinedFrom,
+                                            String joinedBefore) throws InvalidFilterException {
+        return new UserFilter(parseRole(role), parseBoolean("active", active), parseBoolean("notLocked", notLocked),
+                parseDate("joinedFrom", joinedFrom), parseDate("joinedBefore", joinedBefore));
+    }
+
+    private static Role parseRole(String role) throws InvalidFilterException {
+        if(!StringUtils.hasText(role)){
+            return null;
+        }
+        for(Role value : Role.values()){
+            if(value.name().equalsIgnoreCase(role.trim())){
+                return value;
+            }
+        }
+        throw new InvalidFilterException(NO_SUCH_ROLE + role);
+    }
+
+    private static Boolean parseBoolean(String name, String value) throws InvalidFilterException {
+        if(!StringUtils.hasText(value)){
+            return null;
+        }
+        if("true".equalsIgnoreCase(value.trim()) || "false".equalsIgnoreCase(value.trim())){
+            return Boolean.valueOf(value.trim());
+        }
+        throw new InvalidFilterException(String.format(NOT_A_BOOLEAN, name, value));
+    }
+
+    private static Date parseDate(String name, String value) throws InvalidFilterException {
+        if(!StringUtils.hasText(value)){
+            return null;
+        }
+        try {
+            return Date.from(LocalDate.parse(value.trim()).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        } catch (DateTimeParseException exception) {
+            throw new InvalidFilterException(String.format(NOT_A_DATE, name, value));
+        }
+    }
+}
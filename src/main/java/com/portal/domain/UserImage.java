@@ -0,0 +1,53 @@
+package com.portal.domain;
+
+import com.portal.enumeration.ImageSize;
+import lombok.*;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+import static com.portal.constant.FileConstant.*;
+
+/* Metadata of one size of a profile image. The bytes are a file in ImageFileStore named by contentHash and only read
+ * by the image endpoint, so loading a user never pulls an image */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@Entity
+@Table(indexes = {
+        @Index(name = "ux_user_image_user_id_image_size", columnList = "userId, imageSize", unique = true)
+})
+public class UserImage implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(nullable = false, updatable = false)
+    private Long id;
+    @Column(nullable = false)
+    private Long userId;
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private ImageSize imageSize;
+    @Column(nullable = false)
+    private String contentType;
+    private long contentLength;
+    @Column(nullable = false, length = 64)
+    private String contentHash; // SHA-256 of the bytes, used as ETag
+    private Date updatedAt;
+
+    // Relative url of the image of a user, the version is part of it so a new upload is a new url
+    public static String urlOf(String username, Long profileImageVersion) {
+        if(profileImageVersion == null){
+            return DEFAULT_USER_IMAGE_PATH + username;
+        }
+        return PROFILE_IMAGE_PATH + username + IMAGE_VERSION_PARAMETER + profileImageVersion;
+    }
+
+    public static String urlOf(String username, Long profileImageVersion, ImageSize imageSize) {
+        if(profileImageVersion == null){
+            return DEFAULT_USER_IMAGE_PATH + username;
+        }
+        return urlOf(username, profileImageVersion) + IMAGE_SIZE_PARAMETER + imageSize.name().toLowerCase();
+    }
+}
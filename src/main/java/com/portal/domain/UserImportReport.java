@@ -0,0 +1,29 @@
+package com.portal.domain;
+
+import com.portal.enumeration.ImportStatus;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@Getter
+public class UserImportReport {
+    private int created;
+    private int failed;
+    private final List<UserImportResult> results = new ArrayList<>();
+
+    public void add(UserImportResult result) {
+        if(result.getStatus() == ImportStatus.CREATED){
+            created++;
+        }else{
+            failed++;
+        }
+        results.add(result);
+    }
+
+    // Lines that fail to parse are reported right away, the others once their chunk is written
+    public void sortByLine() {
+        results.sort(Comparator.comparingInt(UserImportResult::getLine));
+    }
+}
@@ -0,0 +1,17 @@
+package com.portal.domain;
+
+import com.portal.enumeration.ImportStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/* Outcome of one line of a bulk import. Username is null when the line could not be read */
+@Getter
+@ToString
+@AllArgsConstructor
+public class UserImportResult {
+    private final int line;
+    private final String username;
+    private final ImportStatus status;
+    private final String message;
+}
@@ -1,20 +1,29 @@
 package com.portal.domain;
 
+import com.portal.enumeration.Role;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.stream.Collectors;
 
 public class UserPrincipal implements UserDetails {
 
     /* This is the user from the client */
     private final Users user;
+    // Looked up once, the shared set of the role of the user
+    private final PermissionSet permissions;
 
     public UserPrincipal(Users user) {
         this.user = user;
+        this.permissions = Role.permissionsOf(user.getRole());
+    }
+
+    public Users getUser() {
+        return this.user;
+    }
+
+    public PermissionSet getPermissions() {
+        return this.permissions;
     }
 
     /**
@@ -24,7 +33,7 @@ public class UserPrincipal implements UserDetails {
      */
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Arrays.stream(this.user.getAuthorities()).map(SimpleGrantedAuthority::new).collect(Collectors.toList());
+        return this.permissions.getGrantedAuthorities();
     }
 
     /**
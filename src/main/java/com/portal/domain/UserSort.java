@@ -0,0 +1,36 @@
+package com.portal.domain;
+
+import com.portal.enumeration.UserSortKey;
+import com.portal.exception.domain.InvalidFilterException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.StringUtils;
+
+/* Order of the user list, written as key or key,direction like Spring Data does, e.g. joinDate,desc */
+@Getter
+@ToString
+@AllArgsConstructor
+public class UserSort {
+    public static final String NO_SUCH_DIRECTION = "Expected asc or desc, got: ";
+    public static final UserSort BY_ID = new UserSort(UserSortKey.ID, false);
+    private static final String ASCENDING = "asc";
+    private static final String DESCENDING = "desc";
+    private final UserSortKey key;
+    private final boolean descending;
+
+    public static UserSort fromParameter(String parameter) throws InvalidFilterException {
+        if(!StringUtils.hasText(parameter)){
+            return BY_ID;
+        }
+        String[] parts = parameter.split(",", 2);
+        UserSortKey key = UserSortKey.fromParameter(parts[0]);
+        if(parts.length == 1 || ASCENDING.equalsIgnoreCase(parts[1].trim())){
+            return new UserSort(key, false);
+        }
+        if(DESCENDING.equalsIgnoreCase(parts[1].trim())){
+            return new UserSort(key, true);
+        }
+        throw new InvalidFilterException(NO_SUCH_DIRECTION + parts[1]);
+    }
+}
@@ -0,0 +1,60 @@
+package com.portal.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.portal.enumeration.ImageSize;
+import com.portal.enumeration.Role;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+
+/* What the user list needs of a user, built straight from a query */
+@Getter
+@ToString
+public class UserSummary implements Serializable {
+    @JsonIgnore
+    private final Long id; // Only used to build the cursor of the next page
+    private final String userId;
+    private final String firstName;
+    private final String lastName;
+    private final String username;
+    private final String email;
+    private final String profileImageUrl;
+    private final Date lastLoginDate;
+    private final Date lastLoginDateDisplay;
+    private final Date joinDate;
+    private final String role;
+    private final boolean active;
+    private final boolean notLocked;
+
+    public UserSummary(Long id, String userId, String firstName, String lastName, String username, String email,
+                       Long profileImageVersion, Date lastLoginDate, Date lastLoginDateDisplay, Date joinDate, String role,
+                       boolean active, boolean notLocked) {
+        this.id = id;
+        this.userId = userId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.username = username;
+        this.email = email;
+        this.profileImageUrl = UserImage.urlOf(username, profileImageVersion, ImageSize.AVATAR); // Lists only show avatars
+        this.lastLoginDate = lastLoginDate;
+        this.lastLoginDateDisplay = lastLoginDateDisplay;
+        this.joinDate = joinDate;
+        this.role = role;
+        this.active = active;
+        this.notLocked = notLocked;
+    }
+
+    // Derived from the role, like Users#getAuthorities
+    public List<String> getAuthorities() {
+        return Role.permissionsOf(role).getAuthorities();
+    }
+
+    public static UserSummary from(Users user) {
+        return new UserSummary(user.getId(), user.getUserId(), user.getFirstName(), user.getLastName(), user.getUsername(),
+                user.getEmail(), user.getProfileImageVersion(), user.getLastLoginDate(), user.getLastLoginDateDisplay(),
+                user.getJoinDate(), user.getRole(), user.isActive(), user.isNotLocked());
+    }
+}
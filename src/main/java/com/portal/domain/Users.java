@@ -1,12 +1,13 @@
 package com.portal.domain;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.portal.enumeration.Role;
 import lombok.*;
-import org.hibernate.annotations.Type;
 
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Date;
+import java.util.List;
 
 @Getter
 @Setter
@@ -27,14 +28,43 @@ public class Users implements Serializable {
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
     private String email;
-    @Lob
-    @Type(type = "org.hibernate.type.BinaryType")
-    private byte[] profileImage;
+    // The image itself lives in UserImage, this changes with every upload. Null when the user has none
+    private Long profileImageVersion;
     private Date lastLoginDate;
     private Date lastLoginDateDisplay;
     private Date joinDate;
     private String role; // ROLE_USER, ROLE_ADMIN
-    private String[] authorities;
     private boolean isActive;
     private boolean isNotLocked;
+
+    /* Used by UserRepository#findUserForAuthenticationByUsername, spelled out so the query does not depend on
+     * the order of the fields. Everything the login response shows except lastLoginDateDisplay, which a login
+     * replaces with the previous login date */
+    public Users(Long id, String userId, String firstName, String lastName, String username, String password,
+                 String email, Long profileImageVersion, Date lastLoginDate, Date joinDate, String role,
+                 boolean isActive, boolean isNotLocked) {
+        this.id = id;
+        this.userId = userId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.username = username;
+        this.password = password;
+        this.email = email;
+        this.profileImageVersion = profileImageVersion;
+        this.lastLoginDate = lastLoginDate;
+        this.joinDate = joinDate;
+        this.role = role;
+        this.isActive = isActive;
+        this.isNotLocked = isNotLocked;
+    }
+
+    // Derived from the role, the only place permissions are granted. Kept in the JSON for the client
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public List<String> getAuthorities() {
+        return Role.permissionsOf(role).getAuthorities();
+    }
+
+    public String getProfileImageUrl() {
+        return UserImage.urlOf(username, profileImageVersion);
+    }
 }
@@ -0,0 +1,31 @@
+package com.portal.domain;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+/* Result of verifying a JWT once. Everything the filter needs is read from here
+ * so the signature never has to be checked a second time for the same request */
+@Getter
+@ToString
+public class VerifiedToken {
+    private final String subject;
+    private final List<GrantedAuthority> authorities;
+    private final PermissionSet permissions;
+    private final long expiresAt;
+    private final long epoch;
+
+    public VerifiedToken(String subject, List<GrantedAuthority> authorities, long expiresAt, long epoch) {
+        this.subject = subject;
+        this.authorities = authorities; // Already immutable, often the shared list of a permission mask
+        this.permissions = PermissionSet.of(authorities); // Once per token, not once per request
+        this.expiresAt = expiresAt;
+        this.epoch = epoch;
+    }
+
+    public boolean isExpired(long now) {
+        return expiresAt <= now;
+    }
+}
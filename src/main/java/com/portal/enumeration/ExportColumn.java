@@ -0,0 +1,44 @@
+package com.portal.enumeration;
+
+import com.portal.exception.domain.InvalidExportException;
+
+/* Columns a user export may contain, named like the fields of UserSummary. Only these ever reach the
+ * export query, so neither passwords nor anything the client sends can end up in its SQL */
+public enum ExportColumn {
+    USER_ID("userId", "user_id"),
+    FIRST_NAME("firstName", "first_name"),
+    LAST_NAME("lastName", "last_name"),
+    USERNAME("username", "username"),
+    EMAIL("email", "email"),
+    ROLE("role", "role"),
+    JOIN_DATE("joinDate", "join_date"),
+    LAST_LOGIN_DATE("lastLoginDate", "last_login_date"),
+    ACTIVE("active", "is_active"),
+    NOT_LOCKED("notLocked", "is_not_locked");
+
+    public static final String NO_SUCH_EXPORT_COLUMN = "No export column: ";
+    private final String fieldName;
+    private final String columnName;
+
+    ExportColumn(String fieldName, String columnName) {
+        this.fieldName = fieldName;
+        this.columnName = columnName;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public static ExportColumn fromParameter(String parameter) throws InvalidExportException {
+        for(ExportColumn column : values()){
+            if(column.fieldName.equalsIgnoreCase(parameter.trim())){
+                return column;
+            }
+        }
+        throw new InvalidExportException(NO_SUCH_EXPORT_COLUMN + parameter);
+    }
+}
@@ -0,0 +1,34 @@
+package com.portal.enumeration;
+
+import com.portal.exception.domain.InvalidExportException;
+
+public enum ExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    public static final String NO_SUCH_EXPORT_FORMAT = "No export format: ";
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static ExportFormat fromParameter(String parameter) throws InvalidExportException {
+        for(ExportFormat format : values()){
+            if(format.name().equalsIgnoreCase(parameter)){
+                return format;
+            }
+        }
+        throw new InvalidExportException(NO_SUCH_EXPORT_FORMAT + parameter);
+    }
+}
@@ -0,0 +1,49 @@
+package com.portal.enumeration;
+
+import java.nio.charset.StandardCharsets;
+
+/* Image formats accepted for upload, recognised by their leading bytes instead of the content type the client sends */
+public enum ImageFormat {
+    JPEG("jpeg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}),
+    PNG("png", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+    GIF("gif", "GIF87a".getBytes(StandardCharsets.US_ASCII), "GIF89a".getBytes(StandardCharsets.US_ASCII));
+
+    // Enough leading bytes to tell every format apart
+    public static final int SIGNATURE_LENGTH = 8;
+    private final String formatName;
+    private final byte[][] signatures;
+
+    ImageFormat(String formatName, byte[]... signatures) {
+        this.formatName = formatName;
+        this.signatures = signatures;
+    }
+
+    // Name ImageIO knows the format by
+    public String getFormatName() {
+        return formatName;
+    }
+
+    // Returns null when the bytes do not start like any accepted format
+    public static ImageFormat detect(byte[] header, int length) {
+        for(ImageFormat imageFormat : values()){
+            for(byte[] signature : imageFormat.signatures){
+                if(startsWith(header, length, signature)){
+                    return imageFormat;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] header, int length, byte[] signature) {
+        if(length < signature.length){
+            return false;
+        }
+        for(int i = 0; i < signature.length; i++){
+            if(header[i] != signature[i]){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package com.portal.enumeration;
+
+import com.portal.exception.domain.InvalidImageSizeException;
+
+/* Sizes every uploaded profile image is stored in. The dimension bounds the longest side in pixels */
+public enum ImageSize {
+    AVATAR(64),
+    CARD(256),
+    FULL(1024);
+
+    public static final String NO_SUCH_IMAGE_SIZE = "No image size: ";
+    private final int dimension;
+
+    ImageSize(int dimension) {
+        this.dimension = dimension;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    // Case insensitive so urls can use ?size=avatar
+    public static ImageSize fromParameter(String parameter) throws InvalidImageSizeException {
+        for(ImageSize imageSize : values()){
+            if(imageSize.name().equalsIgnoreCase(parameter)){
+                return imageSize;
+            }
+        }
+        throw new InvalidImageSizeException(NO_SUCH_IMAGE_SIZE + parameter);
+    }
+}
@@ -0,0 +1,6 @@
+package com.portal.enumeration;
+
+public enum ImportStatus {
+    CREATED,
+    FAILED
+}
@@ -0,0 +1,86 @@
+package com.portal.enumeration;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.portal.constant.Authority.*;
+
+/* Every authority string gets one bit so a whole set of authorities fits in an int.
+ * Never reorder or remove constants, the bit positions are written into issued tokens */
+public enum Permission {
+    READ(USER_READ),
+    CREATE(USER_CREATE),
+    UPDATE(USER_UPDATE),
+    DELETE(USER_DELETE);
+
+    public static final int UNKNOWN_MASK = -1;
+    private static final Map<String, Permission> PERMISSIONS_BY_AUTHORITY = new HashMap<>();
+    /* Index is the mask, built once so decoding a mask never allocates */
+    private static final List<List<GrantedAuthority>> AUTHORITIES_BY_MASK = new ArrayList<>();
+
+    static {
+        for(Permission permission : values()){
+            PERMISSIONS_BY_AUTHORITY.put(permission.authority, permission);
+        }
+        for(int mask = 0; mask < 1 << values().length; mask++){
+            List<GrantedAuthority> authorities = new ArrayList<>();
+            for(Permission permission : values()){
+                if((mask & permission.mask) != 0){
+                    authorities.add(permission.grantedAuthority);
+                }
+            }
+            AUTHORITIES_BY_MASK.add(Collections.unmodifiableList(authorities));
+        }
+    }
+
+    private final String authority;
+    private final int mask;
+    private final GrantedAuthority grantedAuthority;
+
+    Permission(String authority){
+        this.authority = authority;
+        this.mask = 1 << ordinal();
+        this.grantedAuthority = new SimpleGrantedAuthority(authority);
+    }
+
+    public String getAuthority(){
+        return authority;
+    }
+
+    public int getMask(){
+        return mask;
+    }
+
+    // Null when the authority has no permission bit
+    public static Permission fromAuthority(String authority){
+        return PERMISSIONS_BY_AUTHORITY.get(authority);
+    }
+
+    // Returns UNKNOWN_MASK when one of the authorities has no permission bit
+    public static int toMask(String... authorities){
+        int mask = 0;
+        for(String authority : authorities){
+            Permission permission = PERMISSIONS_BY_AUTHORITY.get(authority);
+            if(permission == null){
+                return UNKNOWN_MASK;
+            }
+            mask |= permission.mask;
+        }
+        return mask;
+    }
+
+    public static boolean isValidMask(int mask){
+        return mask >= 0 && mask < AUTHORITIES_BY_MASK.size();
+    }
+
+    // Shared immutable list, the same instance is returned for the same mask
+    public static List<GrantedAuthority> toAuthorities(int mask){
+        return AUTHORITIES_BY_MASK.get(mask);
+    }
+}
@@ -1,7 +1,13 @@
 package com.portal.enumeration;
 
+import com.portal.domain.PermissionSet;
+
+import java.util.HashMap;
+import java.util.Map;
+
 import static com.portal.constant.Authority.*;
 
+/* The only place permissions are granted, users get theirs through their role */
 public enum Role {
     ROLE_USER(USER_AUTHORITIES),
     ROLE_HR(HR_AUTHORITIES),
@@ -9,13 +15,33 @@ public enum Role {
     ROLE_ADMIN(ADMIN_AUTHORITIES),
     ROLE_SUPER_ADMIN(SUPER_ADMIN_AUTHORITIES);
 
+    private static final Map<String, Role> ROLES_BY_NAME = new HashMap<>();
+
+    static {
+        for(Role role : values()){
+            ROLES_BY_NAME.put(role.name(), role);
+        }
+    }
+
    private final String[] authorities;
+   private final PermissionSet permissions;
 
    Role(String... authorities){
        this.authorities = authorities;
+       this.permissions = PermissionSet.of(Permission.toMask(authorities));
    }
 
    public String[] getAuthorities(){
        return authorities;
    }
+
+   public PermissionSet getPermissions(){
+       return permissions;
+   }
+
+   // Users with no role, or one that no longer exists, have no permissions
+   public static PermissionSet permissionsOf(String roleName){
+       Role role = roleName == null ? null : ROLES_BY_NAME.get(roleName);
+       return role == null ? PermissionSet.NONE : role.permissions;
+   }
 }
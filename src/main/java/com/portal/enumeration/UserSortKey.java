@@ -0,0 +1,68 @@
+package com.portal.enumeration;
+
+import com.portal.domain.UserSummary;
+import com.portal.exception.domain.InvalidCursorException;
+import com.portal.exception.domain.InvalidFilterException;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+import static com.portal.utility.PageCursor.INVALID_CURSOR;
+
+/* What the user list may be sorted by, ties are broken by id. Each has an index starting with its column,
+ * see V3__user_list_indexes.sql */
+public enum UserSortKey {
+    ID("id"),
+    USERNAME("username"),
+    JOIN_DATE("joinDate");
+
+    public static final String NO_SUCH_SORT_KEY = "No sort key: ";
+    private final String fieldName;
+
+    UserSortKey(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    // The value of the last row of a page kept in the cursor, null when the id alone is enough
+    public String cursorValue(UserSummary summary) {
+        switch (this) {
+            case USERNAME:
+                return summary.getUsername();
+            case JOIN_DATE:
+                return summary.getJoinDate().toInstant().toString(); // Keeps the sub-millisecond part of a Timestamp
+            default:
+                return null;
+        }
+    }
+
+    public Comparable<?> parseCursorValue(String value) throws InvalidCursorException {
+        if(this == ID){
+            return null;
+        }
+        if(value == null){
+            throw new InvalidCursorException(INVALID_CURSOR);
+        }
+        if(this == USERNAME){
+            return value;
+        }
+        try {
+            return Timestamp.from(Instant.parse(value));
+        } catch (DateTimeParseException exception) {
+            throw new InvalidCursorException(INVALID_CURSOR);
+        }
+    }
+
+    public static UserSortKey fromParameter(String parameter) throws InvalidFilterException {
+        for(UserSortKey key : values()){
+            if(key.fieldName.equalsIgnoreCase(parameter.trim())){
+                return key;
+            }
+        }
+        throw new InvalidFilterException(NO_SUCH_SORT_KEY + parameter);
+    }
+}
@@ -5,6 +5,7 @@ import com.portal.domain.HttpResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.web.servlet.error.ErrorController;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +17,7 @@ import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 
 import javax.persistence.NoResultException;
 import java.io.IOException;
@@ -38,6 +40,8 @@ public class ExceptionHandling implements ErrorController {
     private static final String ACCOUNT_DISABLED = "Your account has been disabled. If this is an error, please contact administration";
     private static final String ERROR_PROCESSING_FILE = "Error occurred while processing file";
     private static final String NOT_ENOUGH_PERMISSION = "You do not have enough permission";
+    private static final String UPLOAD_TOO_LARGE = "The uploaded file is too large";
+    private static final int RETRY_AFTER_SECONDS = 1;
     public static final String ERROR_PATH = "/error";
 
 
@@ -61,16 +65,64 @@ public class ExceptionHandling implements ErrorController {
         return createHttpResponse(UNAUTHORIZED, ACCOUNT_LOCKED);
     }
 
+    // Only the address is blocked, unlike LockedException the account itself is fine
+    @ExceptionHandler(TooManyLoginAttemptsException.class)
+    public ResponseEntity<HttpResponse> tooManyLoginAttemptsException(TooManyLoginAttemptsException exception) {
+        return createHttpResponse(TOO_MANY_REQUESTS, exception.getMessage());
+    }
+
     @ExceptionHandler(NotAnImageFileException.class)
     public ResponseEntity<HttpResponse> notAnImageFileException(NotAnImageFileException exception){
         return createHttpResponse(BAD_REQUEST, exception.getMessage());
     }
 
+    @ExceptionHandler(ImageTooLargeException.class)
+    public ResponseEntity<HttpResponse> imageTooLargeException(ImageTooLargeException exception){
+        return createHttpResponse(PAYLOAD_TOO_LARGE, exception.getMessage());
+    }
+
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<HttpResponse> maxUploadSizeExceededException(){
+        return createHttpResponse(PAYLOAD_TOO_LARGE, UPLOAD_TOO_LARGE);
+    }
+
     @ExceptionHandler(TokenExpiredException.class)
     public ResponseEntity<HttpResponse> tokenExpiredException(TokenExpiredException exception) {
         return createHttpResponse(UNAUTHORIZED, exception.getMessage());
     }
 
+    @ExceptionHandler(InvalidRefreshTokenException.class)
+    public ResponseEntity<HttpResponse> invalidRefreshTokenException(InvalidRefreshTokenException exception) {
+        return createHttpResponse(UNAUTHORIZED, exception.getMessage());
+    }
+
+    @ExceptionHandler(HashingCapacityExceededException.class)
+    public ResponseEntity<HttpResponse> hashingCapacityExceededException(HashingCapacityExceededException exception) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SECONDS));
+        return createHttpResponse(SERVICE_UNAVAILABLE, exception.getMessage(), headers);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<HttpResponse> invalidCursorException(InvalidCursorException exception) {
+        return createHttpResponse(BAD_REQUEST, exception.getMessage());
+    }
+
+    @ExceptionHandler(InvalidFilterException.class)
+    public ResponseEntity<HttpResponse> invalidFilterException(InvalidFilterException exception) {
+        return createHttpResponse(BAD_REQUEST, exception.getMessage());
+    }
+
+    @ExceptionHandler(InvalidImageSizeException.class)
+    public ResponseEntity<HttpResponse> invalidImageSizeException(InvalidImageSizeException exception) {
+        return createHttpResponse(BAD_REQUEST, exception.getMessage());
+    }
+
+    @ExceptionHandler(InvalidExportException.class)
+    public ResponseEntity<HttpResponse> invalidExportException(InvalidExportException exception) {
+        return createHttpResponse(BAD_REQUEST, exception.getMessage());
+    }
+
     @ExceptionHandler(EmailExistException.class)
     public ResponseEntity<HttpResponse> emailExistException(EmailExistException exception) {
         return createHttpResponse(BAD_REQUEST, exception.getMessage());
@@ -130,6 +182,10 @@ public class ExceptionHandling implements ErrorController {
 
     // Generic exception method
     private ResponseEntity<HttpResponse> createHttpResponse(HttpStatus httpStatus, String message){
+        return createHttpResponse(httpStatus, message, new HttpHeaders());
+    }
+
+    private ResponseEntity<HttpResponse> createHttpResponse(HttpStatus httpStatus, String message, HttpHeaders headers){
         HttpResponse httpResponse = new HttpResponse(
                 httpStatus.value(),
                 httpStatus,
@@ -137,7 +193,7 @@ public class ExceptionHandling implements ErrorController {
                 message.toUpperCase()
         );
 
-        return new ResponseEntity<>(httpResponse, httpStatus);
+        return new ResponseEntity<>(httpResponse, headers, httpStatus);
     }
 
     @RequestMapping(ERROR_PATH)
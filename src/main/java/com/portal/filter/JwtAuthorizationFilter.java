@@ -1,13 +1,15 @@
 package com.portal.filter;
 
 
+import com.portal.domain.VerifiedToken;
+import com.portal.service.TokenEpochService;
 import com.portal.utility.JWTTokenProvider;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import javax.servlet.FilterChain;
@@ -15,7 +17,6 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.List;
 
 import static com.portal.constant.SecurityConstant.OPTIONS_HTTP_METHOD;
 import static com.portal.constant.SecurityConstant.TOKEN_PREFIX;
@@ -24,9 +25,11 @@ import static com.portal.constant.SecurityConstant.TOKEN_PREFIX;
 public class JwtAuthorizationFilter extends OncePerRequestFilter {
 
     private final JWTTokenProvider jwtTokenProvider;
+    private final TokenEpochService tokenEpochService;
 
-    public JwtAuthorizationFilter(JWTTokenProvider jwtTokenProvider) {
+    public JwtAuthorizationFilter(JWTTokenProvider jwtTokenProvider, TokenEpochService tokenEpochService) {
         this.jwtTokenProvider = jwtTokenProvider;
+        this.tokenEpochService = tokenEpochService;
     }
 
     /**
@@ -56,14 +59,18 @@ public class JwtAuthorizationFilter extends OncePerRequestFilter {
             }
 
             String token = authorizationHeader.substring(TOKEN_PREFIX.length());
-            String username = jwtTokenProvider.getSubject(token);
+            // Signature is checked once here, subject and authorities come from the same result
+            VerifiedToken verifiedToken = jwtTokenProvider.verifyToken(token);
+            String username = verifiedToken.getSubject();
 
-            // If token is valid and there is no user in the system already
-            if(jwtTokenProvider.isTokenValid(username, token) &&
+            // If token is valid, was not revoked and there is no user in the system already
+            if(StringUtils.hasText(username) &&
+                    tokenEpochService.isCurrent(username, verifiedToken.getEpoch()) &&
                     SecurityContextHolder.getContext().getAuthentication() == null){
 
-                List<GrantedAuthority> authorities = jwtTokenProvider.getAuthorities(token);
-                Authentication authentication = jwtTokenProvider.getAuthentication(username, authorities, request);
+                Authentication authentication =
+                        jwtTokenProvider.getAuthentication(username, verifiedToken.getAuthorities(),
+                                verifiedToken.getPermissions(), request);
 
                 // Set this user as authenticated user
                 SecurityContextHolder.getContext().setAuthentication(authentication);
@@ -0,0 +1,136 @@
+package com.portal.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.portal.configuration.RateLimitProperties;
+import com.portal.configuration.RateLimitProperties.Limit;
+import com.portal.domain.HttpResponse;
+import com.portal.utility.TokenBucket;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.portal.constant.SecurityConstant.*;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@Component
+// Runs right after JwtAuthorizationFilter so the caller is already known
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimitProperties rateLimitProperties;
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    /* Key is scope:caller, e.g. "user:Jamie" or "/user/list|ip:10.0.0.1" for an endpoint bucket */
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public RateLimitFilter(RateLimitProperties rateLimitProperties) {
+        this.rateLimitProperties = rateLimitProperties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !rateLimitProperties.isEnabled() || request.getMethod().equalsIgnoreCase(OPTIONS_HTTP_METHOD);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long now = System.nanoTime();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        boolean anonymous = authentication == null || authentication instanceof AnonymousAuthenticationToken;
+        // Authenticated callers are limited by token subject, anonymous ones (public urls) by ip address. That is the
+        // client's from X-Forwarded-For (server.forward-headers-strategy), not the load balancer shared by everyone
+        String caller = anonymous ? "ip:" + request.getRemoteAddr() : "user:" + authentication.getName();
+
+        TokenBucket callerBucket = getBucket(caller, anonymous ? rateLimitProperties.getAnonymous()
+                : rateLimitProperties.getAuthenticated(), now);
+        TokenBucket endpointBucket = getEndpointBucket(urlPathHelper.getPathWithinApplication(request), caller, now);
+
+        // Endpoint limits are the tighter ones, checking them first avoids spending a general token on a rejection
+        if(endpointBucket != null && !endpointBucket.tryConsume(now)){
+            rejectRequest(response, endpointBucket, now);
+            return;
+        }
+        if(!callerBucket.tryConsume(now)){
+            rejectRequest(response, callerBucket, now);
+            return;
+        }
+
+        // The bucket closest to running out is the one the caller needs to know about
+        TokenBucket limitingBucket = endpointBucket != null &&
+                endpointBucket.remaining(now) < callerBucket.remaining(now) ? endpointBucket : callerBucket;
+        addRateLimitHeaders(response, limitingBucket, now);
+        filterChain.doFilter(request, response);
+    }
+
+    // Buckets that have filled up again are the same as new ones, so idle callers cost no memory
+    @Scheduled(fixedDelay = RATE_LIMIT_BUCKET_EVICTION_INTERVAL)
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    private TokenBucket getEndpointBucket(String path, String caller, long now) {
+        for(Map.Entry<String, Limit> endpoint : rateLimitProperties.getEndpoints().entrySet()){
+            if(antPathMatcher.match(endpoint.getKey(), path)){
+                return getBucket(endpoint.getKey() + "|" + caller, endpoint.getValue(), now);
+            }
+        }
+        return null;
+    }
+
+    private TokenBucket getBucket(String key, Limit limit, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if(bucket == null){
+            bucket = buckets.computeIfAbsent(key, newKey -> new TokenBucket(limit.getCapacity(), limit.getTokensPerSecond(), now));
+        }
+        return bucket;
+    }
+
+    private void addRateLimitHeaders(HttpServletResponse response, TokenBucket bucket, long now) {
+        response.setHeader(RATE_LIMIT_LIMIT_HEADER, String.valueOf(bucket.getCapacity()));
+        response.setHeader(RATE_LIMIT_REMAINING_HEADER, String.valueOf(Math.max(bucket.remaining(now), 0)));
+        response.setHeader(RATE_LIMIT_RESET_HEADER, String.valueOf(toSeconds(bucket.nanosUntilFull(now))));
+    }
+
+    private void rejectRequest(HttpServletResponse response, TokenBucket bucket, long now) throws IOException {
+        HttpResponse httpResponse = new HttpResponse(
+                TOO_MANY_REQUESTS.value(),
+                TOO_MANY_REQUESTS,
+                TOO_MANY_REQUESTS.getReasonPhrase().toUpperCase(),
+                TOO_MANY_REQUESTS_MESSAGE
+        );
+
+        addRateLimitHeaders(response, bucket, now);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(toSeconds(bucket.nanosUntilNextToken(now)), 1)));
+        response.setContentType(APPLICATION_JSON_VALUE);
+        response.setStatus(TOO_MANY_REQUESTS.value());
+
+        OutputStream outputStream = response.getOutputStream();
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.writeValue(outputStream, httpResponse);
+        outputStream.flush();
+    }
+
+    // Rounded up so clients never retry too early
+    private long toSeconds(long nanos) {
+        return (nanos + SECONDS.toNanos(1) - 1) / SECONDS.toNanos(1);
+    }
+}
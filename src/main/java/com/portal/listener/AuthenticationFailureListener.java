@@ -3,10 +3,9 @@ package com.portal.listener;
 import com.portal.service.LoginAttemptService;
 import org.springframework.context.event.EventListener;
 import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ExecutionException;
-
 @Component
 public class AuthenticationFailureListener {
     private final LoginAttemptService loginAttemptService;
@@ -25,5 +24,11 @@ public class AuthenticationFailureListener {
             String username = (String) event.getAuthentication().getPrincipal();
             loginAttemptService.addUserToLoginAttemptCache(username);
         }
+
+        // Details are set by UserResource.login, the remote address is the client behind the load balancer
+        Object details = event.getAuthentication().getDetails();
+        if(details instanceof WebAuthenticationDetails){
+            loginAttemptService.addIpAddressToLoginAttemptCache(((WebAuthenticationDetails) details).getRemoteAddress());
+        }
     }
 }
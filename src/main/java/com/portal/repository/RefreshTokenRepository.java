@@ -0,0 +1,27 @@
+package com.portal.repository;
+
+import com.portal.domain.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    RefreshToken findRefreshTokenByTokenHash(String tokenHash);
+
+    // Returns 0 when another request already used this token
+    @Modifying
+    @Query("delete from RefreshToken r where r.id = :id")
+    int deleteRefreshTokenById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from RefreshToken r where r.username = :username")
+    int deleteRefreshTokensByUsername(@Param("username") String username);
+
+    @Modifying
+    @Query("delete from RefreshToken r where r.expiresAt < :now")
+    int deleteExpiredRefreshTokens(@Param("now") Date now);
+}
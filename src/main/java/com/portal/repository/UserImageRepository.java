@@ -0,0 +1,17 @@
+package com.portal.repository;
+
+import com.portal.domain.UserImage;
+import com.portal.enumeration.ImageSize;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface UserImageRepository extends JpaRepository<UserImage, Long> {
+
+    List<UserImage> findUserImagesByUserId(Long userId);
+
+    @Query("select i from UserImage i, Users u where i.userId = u.id and lower(u.username) = lower(:username) and i.imageSize = :imageSize")
+    UserImage findUserImageByUsername(@Param("username") String username, @Param("imageSize") ImageSize imageSize);
+}
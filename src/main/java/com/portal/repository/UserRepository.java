@@ -1,11 +1,71 @@
 package com.portal.repository;
 
+import com.portal.domain.UserSummary;
 import com.portal.domain.Users;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface UserRepository extends JpaRepository<Users, Long> {
+import java.util.Collection;
+import java.util.List;
 
-    Users findUserByUsername(String username);
+/* Usernames and emails are compared in lower case, the same expression the unique indexes are built on */
+public interface UserRepository extends JpaRepository<Users, Long>, UserRepositoryCustom {
 
-    Users findUserByEmail(String email);
+    @Query("select u from Users u where lower(u.username) = lower(:username)")
+    Users findUserByUsername(@Param("username") String username);
+
+    @Query("select u from Users u where lower(u.email) = lower(:email)")
+    Users findUserByEmail(@Param("email") String email);
+
+    // The user being changed plus whoever holds the new username or email, up to three rows in one query
+    @Query("select u from Users u where lower(u.username) in (lower(:currentUsername), lower(:newUsername)) " +
+            "or lower(u.email) = lower(:newEmail)")
+    List<Users> findUsersByUsernameOrEmail(@Param("currentUsername") String currentUsername,
+                                           @Param("newUsername") String newUsername,
+                                           @Param("newEmail") String newEmail);
+
+    // Which of these lower-cased usernames or emails are taken, one query per bulk import chunk
+    @Query("select lower(u.username) from Users u where lower(u.username) in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select lower(u.email) from Users u where lower(u.email) in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    /* Same as findUserByUsername, but the result is not a managed entity so the login date set during
+     * authentication is only written by LastLoginRecorder. Arguments follow the authentication constructor of Users */
+    @Query("select new com.portal.domain.Users(u.id, u.userId, u.firstName, u.lastName, u.username, u.password, " +
+            "u.email, u.profileImageVersion, u.lastLoginDate, u.joinDate, u.role, u.isActive, u.isNotLocked) " +
+            "from Users u where lower(u.username) = lower(:username)")
+    Users findUserForAuthenticationByUsername(@Param("username") String username);
+
+    // Keyset page: seeks past the last id of the previous page through the primary key index
+    @Query("select new com.portal.domain.UserSummary(u.id, u.userId, u.firstName, u.lastName, u.username, u.email, " +
+            "u.profileImageVersion, u.lastLoginDate, u.lastLoginDateDisplay, u.joinDate, u.role, u.isActive, u.isNotLocked) " +
+            "from Users u where u.id > :afterId order by u.id")
+    List<UserSummary> findUserSummariesAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select new com.portal.domain.UserSummary(u.id, u.userId, u.firstName, u.lastName, u.username, u.email, " +
+            "u.profileImageVersion, u.lastLoginDate, u.lastLoginDateDisplay, u.joinDate, u.role, u.isActive, u.isNotLocked) " +
+            "from Users u where lower(u.username) = lower(:username)")
+    UserSummary findUserSummaryByUsername(@Param("username") String username);
+
+    @Query("select new com.portal.domain.UserSummary(u.id, u.userId, u.firstName, u.lastName, u.username, u.email, " +
+            "u.profileImageVersion, u.lastLoginDate, u.lastLoginDateDisplay, u.joinDate, u.role, u.isActive, u.isNotLocked) " +
+            "from Users u where lower(u.email) = lower(:email)")
+    UserSummary findUserSummaryByEmail(@Param("email") String email);
+
+    @Modifying
+    @Query("update Users u set u.isNotLocked = :isNotLocked where u.id = :id")
+    int updateNotLocked(@Param("id") Long id, @Param("isNotLocked") boolean isNotLocked);
+
+    @Modifying
+    @Query("update Users u set u.profileImageVersion = :version where u.id = :id")
+    int updateProfileImageVersion(@Param("id") Long id, @Param("version") Long version);
+
+    @Modifying
+    @Query("update Users u set u.password = :password where u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
 }
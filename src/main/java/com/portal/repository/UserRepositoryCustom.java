@@ -0,0 +1,18 @@
+package com.portal.repository;
+
+import com.portal.domain.UserFilter;
+import com.portal.domain.UserSort;
+import com.portal.domain.UserSummary;
+import com.portal.exception.domain.InvalidCursorException;
+import com.portal.utility.PageCursor;
+
+import java.util.List;
+
+// Queries built at runtime, implemented by UserRepositoryImpl
+public interface UserRepositoryCustom {
+
+    /* Up to size users matching the filter in the given order, starting right after the cursor,
+     * or from the first user when it is null */
+    List<UserSummary> findUserSummaries(UserFilter filter, UserSort sort, PageCursor after, int size)
+            throws InvalidCursorException;
+}
@@ -0,0 +1,82 @@
+package com.portal.repository;
+
+import com.portal.domain.UserFilter;
+import com.portal.domain.UserSort;
+import com.portal.domain.UserSummary;
+import com.portal.domain.Users;
+import com.portal.enumeration.UserSortKey;
+import com.portal.exception.domain.InvalidCursorException;
+import com.portal.utility.PageCursor;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Only the conditions that are set make it into the where clause, so the planner can pick the index for the
+ * filters actually used. Pages are keyset based: the sort value and id of the last row seek into the index
+ * instead of skipping rows with an offset */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    private static final String ID = "id";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<UserSummary> findUserSummaries(UserFilter filter, UserSort sort, PageCursor after, int size)
+            throws InvalidCursorException {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserSummary> query = builder.createQuery(UserSummary.class);
+        Root<Users> user = query.from(Users.class);
+        query.select(builder.construct(UserSummary.class, user.get("id"), user.get("userId"), user.get("firstName"),
+                user.get("lastName"), user.get("username"), user.get("email"), user.get("profileImageVersion"),
+                user.get("lastLoginDate"), user.get("lastLoginDateDisplay"), user.get("joinDate"), user.get("role"),
+                user.get("isActive"), user.get("isNotLocked")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        if(filter.getRole() != null){
+            predicates.add(builder.equal(user.get("role"), filter.getRole().name()));
+        }
+        if(filter.getActive() != null){
+            predicates.add(filter.getActive() ? builder.isTrue(user.get("isActive")) : builder.isFalse(user.get("isActive")));
+        }
+        if(filter.getNotLocked() != null){
+            predicates.add(filter.getNotLocked() ? builder.isTrue(user.get("isNotLocked")) : builder.isFalse(user.get("isNotLocked")));
+        }
+        if(filter.getJoinedFrom() != null){
+            predicates.add(builder.greaterThanOrEqualTo(user.get("joinDate"), filter.getJoinedFrom()));
+        }
+        if(filter.getJoinedBefore() != null){
+            predicates.add(builder.lessThan(user.get("joinDate"), filter.getJoinedBefore()));
+        }
+
+        Path<Long> id = user.get(ID);
+        Path<Comparable> key = sort.getKey() == UserSortKey.ID ? null : user.get(sort.getKey().getFieldName());
+        if(after != null){
+            Comparable lastValue = sort.getKey().parseCursorValue(after.getLastValue());
+            Predicate idAfter = sort.isDescending() ? builder.lessThan(id, after.getLastId()) : builder.greaterThan(id, after.getLastId());
+            if(key == null){
+                predicates.add(idAfter);
+            }else if(sort.isDescending()){
+                // key <= last and (key < last or id < last id), the first part alone bounds the index scan
+                predicates.add(builder.lessThanOrEqualTo(key, lastValue));
+                predicates.add(builder.or(builder.lessThan(key, lastValue), idAfter));
+            }else{
+                predicates.add(builder.greaterThanOrEqualTo(key, lastValue));
+                predicates.add(builder.or(builder.greaterThan(key, lastValue), idAfter));
+            }
+        }
+        query.where(predicates.toArray(new Predicate[0]));
+
+        List<Order> orders = new ArrayList<>();
+        if(key != null){
+            orders.add(sort.isDescending() ? builder.desc(key) : builder.asc(key));
+        }
+        orders.add(sort.isDescending() ? builder.desc(id) : builder.asc(id));
+        query.orderBy(orders);
+
+        return entityManager.createQuery(query).setMaxResults(size).getResultList();
+    }
+}
@@ -1,33 +1,68 @@
 package com.portal.resource;
 
 import com.portal.domain.HttpResponse;
+import com.portal.domain.UserImage;
+import com.portal.domain.UserFilter;
+import com.portal.domain.UserImportReport;
+import com.portal.domain.UserSort;
+import com.portal.domain.UserSummary;
 import com.portal.domain.Users;
 import com.portal.domain.UserPrincipal;
+import com.portal.enumeration.ExportColumn;
+import com.portal.enumeration.ExportFormat;
+import com.portal.enumeration.ImageSize;
 import com.portal.exception.domain.*;
+import com.portal.service.ImageFileStore;
+import com.portal.service.LoginAttemptService;
+import com.portal.service.RefreshTokenService;
+import com.portal.service.UserImageService;
+import com.portal.service.UserExportService;
+import com.portal.service.UserImportService;
+import com.portal.service.UserSearchIndex;
 import com.portal.service.UserService;
+import com.portal.utility.FileSender;
+import com.portal.utility.IdenticonGenerator;
 import com.portal.utility.JWTTokenProvider;
+import com.portal.utility.PageCursor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.mail.MessagingException;
+import javax.persistence.NoResultException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static com.portal.constant.FileConstant.*;
+import static com.portal.constant.SecurityConstant.INVALID_REFRESH_TOKEN;
 import static com.portal.constant.SecurityConstant.JWT_TOKEN_HEADER;
+import static com.portal.constant.SecurityConstant.REFRESH_TOKEN_HEADER;
+import static com.portal.constant.UserImplServiceConstant.DEFAULT_PAGE_SIZE;
+import static com.portal.constant.UserImplServiceConstant.MAXIMUM_PAGE_SIZE;
+import static com.portal.constant.UserImplServiceConstant.DEFAULT_SEARCH_LIMIT;
+import static com.portal.constant.UserImplServiceConstant.MAXIMUM_SEARCH_LIMIT;
 import static org.springframework.http.MediaType.IMAGE_JPEG_VALUE;
+import static org.springframework.http.MediaType.IMAGE_PNG_VALUE;
 
 @RestController
 @RequestMapping(path = {"/","/user"})
@@ -35,23 +70,69 @@ public class UserResource extends ExceptionHandling {
 
     public static final String EMAIL_SENT = "An email with a new password was sent to: ";
     public static final String USER_DELETED_SUCCESSFULLY = "User deleted successfully";
+    public static final String NEXT_CURSOR_HEADER = "Next-Cursor";
+    public static final String NO_IMAGE_FOUND_FOR_USER = "No profile image found for user: ";
+    public static final String NO_IMAGE_FOUND_FOR_HASH = "No image found for: ";
+    private static final long IMMUTABLE_IMAGE_MAX_AGE_DAYS = 365;
+    private static final long DEFAULT_AVATAR_MAX_AGE_DAYS = 7;
+    public static final String TEXT_CSV_VALUE = "text/csv";
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final String GZIP = "gzip";
+    private static final String EXPORT_FILE_NAME = "users";
+    public static final String TOO_MANY_LOGIN_ATTEMPTS = "Too many failed login attempts from this address";
     private final UserService userService;
     private final AuthenticationManager authenticationManager;
     private final JWTTokenProvider jwtTokenProvider;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginAttemptService loginAttemptService;
+    private final UserImageService userImageService;
+    private final ImageFileStore imageFileStore;
+    private final FileSender fileSender;
+    private final IdenticonGenerator identiconGenerator;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final UserSearchIndex userSearchIndex;
 
-    public UserResource(UserService userService, AuthenticationManager authenticationManager, JWTTokenProvider jwtTokenProvider) {
+    public UserResource(UserService userService, AuthenticationManager authenticationManager,
+                        JWTTokenProvider jwtTokenProvider, RefreshTokenService refreshTokenService,
+                        LoginAttemptService loginAttemptService, UserImageService userImageService,
+                        ImageFileStore imageFileStore, FileSender fileSender,
+                        IdenticonGenerator identiconGenerator, UserImportService userImportService,
+                        UserExportService userExportService, UserSearchIndex userSearchIndex) {
         this.userService = userService;
         this.authenticationManager = authenticationManager;
         this.jwtTokenProvider = jwtTokenProvider;
+        this.refreshTokenService = refreshTokenService;
+        this.loginAttemptService = loginAttemptService;
+        this.userImageService = userImageService;
+        this.imageFileStore = imageFileStore;
+        this.fileSender = fileSender;
+        this.identiconGenerator = identiconGenerator;
+        this.userImportService = userImportService;
+        this.userExportService = userExportService;
+        this.userSearchIndex = userSearchIndex;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<Users> login(@RequestBody Users user) {
-        authenticate(user.getUsername(), user.getPassword());
-        Users loginUser = userService.findByUsername(user.getUsername());
-        UserPrincipal userPrincipal = new UserPrincipal(loginUser);
+    public ResponseEntity<Users> login(@RequestBody Users user, HttpServletRequest request)
+            throws TooManyLoginAttemptsException {
+        // Reuse the user loaded during authentication instead of looking it up a second time
+        UserPrincipal userPrincipal = authenticate(user.getUsername(), user.getPassword(), request);
         HttpHeaders jwtHeader = getJwtHeader(userPrincipal);
-        return new ResponseEntity<>(loginUser,jwtHeader, HttpStatus.OK);
+        return new ResponseEntity<>(userPrincipal.getUser(), jwtHeader, HttpStatus.OK);
+    }
+
+    // Trade a refresh token for a new access token and refresh token without checking the password again
+    @PostMapping("/token/refresh")
+    public ResponseEntity<Users> refreshToken(@RequestHeader(value = REFRESH_TOKEN_HEADER, required = false) String refreshToken)
+            throws InvalidRefreshTokenException {
+        String username = refreshTokenService.consumeRefreshToken(refreshToken);
+        Users user = userService.findByUsername(username);
+        if(user == null || !user.isActive() || !user.isNotLocked()){
+            throw new InvalidRefreshTokenException(INVALID_REFRESH_TOKEN);
+        }
+        HttpHeaders jwtHeader = getJwtHeader(new UserPrincipal(user));
+        return new ResponseEntity<>(user, jwtHeader, HttpStatus.OK);
     }
 
     @PostMapping("/register")
@@ -61,7 +142,7 @@ public class UserResource extends ExceptionHandling {
        return new ResponseEntity<>(newUser, HttpStatus.OK);
     }
 
-    @PreAuthorize("hasAnyAuthority('user:update')")
+    @PreAuthorize("hasPermission(null, 'user:update')")
     @PostMapping("/add")
     public ResponseEntity<Users> addNewUser(@RequestParam("firstName") String firstName,
                                             @RequestParam("lastName") String lastName,
@@ -71,7 +152,7 @@ public class UserResource extends ExceptionHandling {
                                             @RequestParam("isActive") String isActive,
                                             @RequestParam("isNonLocked") String isNonLocked,
                                             @RequestParam(value = "profileImage", required = false) MultipartFile profileImage)
-            throws UserNotFoundException, EmailExistException, UsernameExistException, MessagingException, NotAnImageFileException, IOException {
+            throws UserNotFoundException, EmailExistException, UsernameExistException, MessagingException, NotAnImageFileException, ImageTooLargeException, IOException {
 
         Users newUser = userService.addNewUser(firstName, lastName, username, email, role,
                 Boolean.parseBoolean(isNonLocked), Boolean.parseBoolean(isActive), profileImage);
@@ -79,7 +160,16 @@ public class UserResource extends ExceptionHandling {
         return new ResponseEntity<>(newUser, HttpStatus.CREATED);
     }
 
-    @PreAuthorize("hasAnyAuthority('user:update')")
+    // Body is the CSV file (header line first) or NDJSON itself, read as it arrives. Always 200 with a line by line report
+    @PreAuthorize("hasPermission(null, 'user:create')")
+    @PostMapping(path = "/import", consumes = {TEXT_CSV_VALUE, NDJSON_VALUE})
+    public ResponseEntity<UserImportReport> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                        HttpServletRequest request) throws IOException {
+        boolean csv = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE));
+        return new ResponseEntity<>(userImportService.importUsers(request.getInputStream(), csv), HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasPermission(null, 'user:update')")
     @PostMapping("/update")
     public ResponseEntity<Users> update(@RequestParam("currentUsername") String currentUsername,
                                         @RequestParam("firstName") String firstName,
@@ -90,7 +180,7 @@ public class UserResource extends ExceptionHandling {
                                         @RequestParam("isActive") String isActive,
                                         @RequestParam("isNonLocked") String isNonLocked,
                                         @RequestParam(value = "profileImage", required = false) MultipartFile profileImage)
-            throws UserNotFoundException, EmailExistException, UsernameExistException, NotAnImageFileException, IOException {
+            throws UserNotFoundException, EmailExistException, UsernameExistException, NotAnImageFileException, ImageTooLargeException, IOException {
 
         Users updatedUser = userService.updateUser(currentUsername,firstName, lastName, username, email, role,
                 Boolean.parseBoolean(isNonLocked), Boolean.parseBoolean(isActive), profileImage);
@@ -99,16 +189,67 @@ public class UserResource extends ExceptionHandling {
     }
 
     @GetMapping("/find/{username}")
-    public ResponseEntity<Users> getUser(@PathVariable("username") String username){
-        return new ResponseEntity<>(userService.findByUsername(username), HttpStatus.OK);
+    public ResponseEntity<UserSummary> getUser(@PathVariable("username") String username){
+        return new ResponseEntity<>(userService.findSummaryByUsername(username), HttpStatus.OK);
+    }
+
+    // Ranked by the in memory index, the database is not queried
+    @GetMapping("/search")
+    public ResponseEntity<List<UserSummary>> searchUsers(@RequestParam("q") String query,
+                                                         @RequestParam(value = "limit", defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit) {
+        int resultLimit = Math.min(Math.max(limit, 1), MAXIMUM_SEARCH_LIMIT);
+        return new ResponseEntity<>(userSearchIndex.search(query, resultLimit), HttpStatus.OK);
     }
 
+    // Every user as a download, written while it is read. Compressed when the client accepts gzip
+    @PreAuthorize("hasPermission(null, 'user:read')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(value = "format", defaultValue = "csv") String format,
+                                                             @RequestParam(value = "columns", required = false) String columns,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding)
+            throws InvalidExportException {
+        ExportFormat exportFormat = ExportFormat.fromParameter(format);
+        List<ExportColumn> exportColumns = userExportService.parseColumns(columns);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains(GZIP);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(exportFormat.getContentType()));
+        headers.setContentDisposition(ContentDisposition.attachment()
+                .filename(EXPORT_FILE_NAME + DOT + exportFormat.getExtension()).build());
+        headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING));
+        if(gzip){
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        StreamingResponseBody body = outputStream -> userExportService.export(outputStream, exportFormat, exportColumns, gzip);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    /* The body stays a plain array, the cursor of the next page is sent in the Next-Cursor header when there is one.
+     * Filters and sort are applied in the database, e.g. ?notLocked=false or ?role=ROLE_HR&sort=joinDate,desc */
     @GetMapping("/list")
-    public ResponseEntity<List<Users>> getAllUsers(){
-        return new ResponseEntity<>(userService.getUsers(), HttpStatus.OK);
+    public ResponseEntity<List<UserSummary>> getAllUsers(@RequestParam(value = "cursor", required = false) String cursor,
+                                                         @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                                                         @RequestParam(value = "role", required = false) String role,
+                                                         @RequestParam(value = "active", required = false) String active,
+                                                         @RequestParam(value = "notLocked", required = false) String notLocked,
+                                                         @RequestParam(value = "joinedFrom", required = false) String joinedFrom,
+                                                         @RequestParam(value = "joinedBefore", required = false) String joinedBefore,
+                                                         @RequestParam(value = "sort", required = false) String sort)
+            throws InvalidCursorException, InvalidFilterException {
+        int pageSize = Math.min(Math.max(size, 1), MAXIMUM_PAGE_SIZE);
+        UserFilter userFilter = UserFilter.fromParameters(role, active, notLocked, joinedFrom, joinedBefore);
+        UserSort userSort = UserSort.fromParameter(sort);
+        List<UserSummary> users = userService.getUsers(userFilter, userSort, PageCursor.decode(cursor), pageSize);
+        HttpHeaders headers = new HttpHeaders();
+        // A full page may have more after it, a short one is the last
+        if(users.size() == pageSize){
+            UserSummary last = users.get(users.size() - 1);
+            headers.add(NEXT_CURSOR_HEADER, PageCursor.encode(last.getId(), userSort.getKey().cursorValue(last)));
+        }
+        return new ResponseEntity<>(users, headers, HttpStatus.OK);
     }
 
-    @PreAuthorize("hasAnyAuthority('user:create')")
+    @PreAuthorize("hasPermission(null, 'user:create')")
     @PostMapping("reset-password/{email}")
     public ResponseEntity<HttpResponse> resetPassword(@PathVariable("email") String email) throws EmailNotFoundException, MessagingException {
         userService.resetPassword(email);
@@ -116,7 +257,7 @@ public class UserResource extends ExceptionHandling {
     }
 
     @DeleteMapping("/delete/{username}")
-    @PreAuthorize("hasAnyAuthority('user:delete')")
+    @PreAuthorize("hasPermission(null, 'user:delete')")
     public ResponseEntity<HttpResponse> deleteUser(@PathVariable("username") String username) {
         userService.deleteUser(username);
         return response(HttpStatus.NO_CONTENT, USER_DELETED_SUCCESSFULLY);
@@ -125,7 +266,7 @@ public class UserResource extends ExceptionHandling {
     @PostMapping("/update-profile-Image")
     public ResponseEntity<Users> updateProfileImage(@RequestParam("username") String username,
                                                     @RequestParam(value = "profileImage") MultipartFile profileImage)
-            throws UserNotFoundException, EmailExistException, IOException, UsernameExistException, NotAnImageFileException {
+            throws UserNotFoundException, EmailExistException, IOException, UsernameExistException, NotAnImageFileException, ImageTooLargeException {
 
         Users updatedUser = userService.updateProfileImage(username, profileImage);
 
@@ -133,14 +274,43 @@ public class UserResource extends ExceptionHandling {
     }
 
     /**
-     * @deprecated
-     * This method should not be used since we no longer add pictures to the fie system
-     * but instead send them to the database as blobs*/
-    @Deprecated
-    // Get user image from file system
-    @GetMapping(path = "/image/{username}/{fileName}", produces = IMAGE_JPEG_VALUE)
-    public byte[] getProfileImage(@PathVariable String fileName, @PathVariable String username) throws IOException {
-        return Files.readAllBytes(Paths.get(USER_FOLDER + username + FORWARD_SLASH + fileName));
+     * Sends the profile image of the user in the requested size (avatar, card or full) from the image store.
+     * Supports If-None-Match with the SHA-256 of the image as ETag, and a single byte range.
+     */
+    @GetMapping("/images/users/{username}")
+    public void getUserImage(@PathVariable("username") String username,
+                             @RequestParam(value = "size", defaultValue = "full") String size, WebRequest webRequest,
+                             HttpServletRequest request, HttpServletResponse response)
+            throws IOException, InvalidImageSizeException {
+        UserImage userImage = userImageService.findImage(username, ImageSize.fromParameter(size));
+        Path imageFile = userImage == null ? null : userImageService.findImageFile(userImage);
+        if(imageFile == null){
+            throw new NoResultException(NO_IMAGE_FOUND_FOR_USER + username);
+        }
+        String etag = "\"" + userImage.getContentHash() + "\"";
+        if(webRequest.checkNotModified(etag)){
+            return;
+        }
+        // The same url shows a new image after an upload, so it must be revalidated
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        fileSender.send(imageFile, userImage.getContentType(), etag, request, response);
+    }
+
+    // Images by content hash never change, browsers and proxies may keep them for a year without asking again
+    @GetMapping("/images/{hash}")
+    public void getImageByHash(@PathVariable("hash") String hash, WebRequest webRequest,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path imageFile = imageFileStore.find(hash);
+        if(imageFile == null){
+            throw new NoResultException(NO_IMAGE_FOUND_FOR_HASH + hash);
+        }
+        String etag = "\"" + hash + "\"";
+        if(webRequest.checkNotModified(etag)){
+            return;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.maxAge(IMMUTABLE_IMAGE_MAX_AGE_DAYS, TimeUnit.DAYS)
+                .cachePublic().getHeaderValue() + ", immutable");
+        fileSender.send(imageFile, IMAGE_JPEG_VALUE, etag, request, response);
     }
 
     /**
@@ -148,23 +318,25 @@ public class UserResource extends ExceptionHandling {
      * This method should not be used since we no longer add pictures to the fie system
      * but instead send them to the database as blobs*/
     @Deprecated
-    //Responsible for getting the avatar from TEMP_PROFILE_IMAGE_BASE_URL
-    @GetMapping(path = "/image/profile/{username}", produces = IMAGE_JPEG_VALUE)
-    public byte[] getTempProfileImage( @PathVariable String username) throws IOException {
-        // Get url
-        URL url = new URL(TEMP_PROFILE_IMAGE_BASE_URL + username);
-
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-
-        try(InputStream inputStream = url.openStream()){
-            int bytesRead;
-            byte[] chunk = new byte[1024];
-            while((bytesRead = inputStream.read(chunk)) > 0){
-                byteArrayOutputStream.write(chunk, 0, bytesRead);
-            }
+    // Get user image from file system
+    @GetMapping(path = "/image/{username}/{fileName}", produces = IMAGE_JPEG_VALUE)
+    public void getProfileImage(@PathVariable String fileName, @PathVariable String username,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path userFolder = Paths.get(USER_FOLDER).toAbsolutePath().normalize();
+        Path imageFile = userFolder.resolve(username).resolve(fileName).normalize();
+        // Names come from the url, they must not lead out of the user folder
+        if(!imageFile.startsWith(userFolder) || !Files.isRegularFile(imageFile)){
+            throw new NoResultException(NO_IMAGE_FOUND_FOR_USER + username);
         }
+        fileSender.send(imageFile, IMAGE_JPEG_VALUE, null, request, response);
+    }
 
-        return byteArrayOutputStream.toByteArray();
+    // Default avatar of users without a profile image, drawn locally from the username
+    @GetMapping(path = "/images/default/{username}", produces = IMAGE_PNG_VALUE)
+    public ResponseEntity<byte[]> getTempProfileImage(@PathVariable String username) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(DEFAULT_AVATAR_MAX_AGE_DAYS, TimeUnit.DAYS).cachePublic())
+                .body(identiconGenerator.generate(username));
     }
 
     private ResponseEntity<HttpResponse> response(HttpStatus httpStatus, String message) {
@@ -177,10 +349,20 @@ public class UserResource extends ExceptionHandling {
     private HttpHeaders getJwtHeader(UserPrincipal userPrincipal) {
         HttpHeaders headers = new HttpHeaders();
         headers.add(JWT_TOKEN_HEADER, jwtTokenProvider.generateJwtToken(userPrincipal));
+        headers.add(REFRESH_TOKEN_HEADER, refreshTokenService.issueRefreshToken(userPrincipal.getUsername()));
         return headers;
     }
 
-    private void authenticate(String username, String password) {
-        authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+    // The remote address is the client's, taken from X-Forwarded-For (server.forward-headers-strategy)
+    private UserPrincipal authenticate(String username, String password, HttpServletRequest request)
+            throws TooManyLoginAttemptsException {
+        if(loginAttemptService.hasIpAddressExceededMaxAttempts(request.getRemoteAddr())){
+            throw new TooManyLoginAttemptsException(TOO_MANY_LOGIN_ATTEMPTS);
+        }
+        UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(username, password);
+        // Carries the ip address to AuthenticationFailureListener
+        authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        Authentication authentication = authenticationManager.authenticate(authenticationToken);
+        return (UserPrincipal) authentication.getPrincipal();
     }
 }
@@ -0,0 +1,111 @@
+package com.portal.service;
+
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static com.portal.constant.FileConstant.IMAGE_STORE_FOLDER;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+/* Image files named by the SHA-256 of their bytes under ab/cd/abcd..., so the same image is stored once
+ * however many users have it and a file never changes once written. Files no row of user_image points to
+ * are deleted by a scheduled sweep rather than on delete, which keeps an upload racing a delete safe.
+ * Every instance has to see the same files, so portal.image.store-directory must be a shared persistent volume.
+ * The folder in the home directory is only meant for running a single instance locally */
+@Service
+public class ImageFileStore {
+    private static final Pattern SHA_256_HEX = Pattern.compile("[0-9a-f]{64}");
+    private static final String TEMPORARY_FOLDER = "tmp";
+    private static final String SELECT_HASHES_SQL = "select distinct content_hash from user_image";
+    // Files younger than this may belong to an upload whose row is not committed yet
+    private static final long UNREFERENCED_FILE_GRACE_PERIOD = 3_600_000; //1 hour expressed in milliseconds
+    private static final long CLEANUP_INTERVAL = 3_600_000; //1 hour expressed in milliseconds
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+    private final Path root;
+    private final boolean configured;
+    private final Path temporaryFolder;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ImageFileStore(@Value("${portal.image.store-directory:}") String storeDirectory,
+                          JdbcTemplate jdbcTemplate) throws IOException {
+        this.configured = StringUtils.hasText(storeDirectory);
+        this.root = Paths.get(configured ? storeDirectory : IMAGE_STORE_FOLDER).toAbsolutePath();
+        this.temporaryFolder = root.resolve(TEMPORARY_FOLDER);
+        this.jdbcTemplate = jdbcTemplate;
+        Files.createDirectories(temporaryFolder);
+    }
+
+    // Returns the hash the image is stored under
+    public String store(byte[] image) throws IOException {
+        String hash = Hashing.sha256().hashBytes(image).toString();
+        Path target = pathOf(hash);
+        if(Files.exists(target)){
+            // Already stored, touching it keeps the sweep away until the new row is committed
+            Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+            return hash;
+        }
+        Files.createDirectories(target.getParent());
+        // Written aside and moved in one step so a reader never sees half a file
+        Path temporaryFile = Files.createTempFile(temporaryFolder, hash, null);
+        try {
+            Files.write(temporaryFile, image);
+            Files.move(temporaryFile, target, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        return hash;
+    }
+
+    // False when falling back to the home directory, which other instances cannot see
+    public boolean isConfigured() {
+        return configured;
+    }
+
+    // Null when the hash is malformed or nothing is stored under it
+    public Path find(String hash) {
+        if(hash == null || !SHA_256_HEX.matcher(hash).matches()){
+            return null;
+        }
+        Path path = pathOf(hash);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    @Scheduled(fixedDelay = CLEANUP_INTERVAL)
+    public void deleteUnreferencedFiles() throws IOException {
+        Set<String> referencedHashes = new HashSet<>(jdbcTemplate.queryForList(SELECT_HASHES_SQL, String.class));
+        long cutoff = System.currentTimeMillis() - UNREFERENCED_FILE_GRACE_PERIOD;
+        int deleted = 0;
+        try(Stream<Path> files = Files.walk(root)){
+            for(Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator){
+                String name = file.getFileName().toString();
+                boolean unreferenced = file.startsWith(temporaryFolder) || !referencedHashes.contains(name);
+                if(unreferenced && Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)){
+                    deleted++;
+                }
+            }
+        }
+        if(deleted > 0){
+            LOGGER.info("Deleted " + deleted + " unreferenced image files");
+        }
+    }
+
+    private Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+}
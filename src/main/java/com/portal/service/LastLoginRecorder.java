@@ -0,0 +1,134 @@
+package com.portal.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/* Write-behind buffer for login dates. Logins only touch memory, the buffer is written to the
+ * database as one batched UPDATE every flush interval, when it reaches the flush threshold and on shutdown.
+ * Several logins of the same user in between are merged into a single row update */
+@Service
+public class LastLoginRecorder {
+    // A null display date means "whatever the row holds as last login", i.e. the login before this batch
+    private static final String UPDATE_LAST_LOGIN = "update users set " +
+            "last_login_date_display = coalesce(?, last_login_date), last_login_date = ? where id = ?";
+    private static final int[] UPDATE_LAST_LOGIN_TYPES = {Types.TIMESTAMP, Types.TIMESTAMP, Types.BIGINT};
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+    /* Long is the id of the user */
+    private final ConcurrentMap<Long, PendingLogin> pendingLogins = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flushExecutor =
+            Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "last-login-flush"));
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer flushTimer;
+    private final int flushThreshold;
+
+    public LastLoginRecorder(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${portal.last-login.flush-threshold:500}") int flushThreshold) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.flushThreshold = flushThreshold;
+        this.flushTimer = Timer.builder("portal.last.login.flush")
+                .description("Time taken to write one batch of login dates")
+                .register(meterRegistry);
+        Gauge.builder("portal.last.login.queue.depth", pendingLogins, Map::size)
+                .description("Users with a login date waiting to be written")
+                .register(meterRegistry);
+    }
+
+    public void recordLogin(Long userId, Date loginDate){
+        pendingLogins.merge(userId, new PendingLogin(null, loginDate),
+                (previous, next) -> new PendingLogin(previous.lastLoginDate, next.lastLoginDate));
+
+        // Only one early flush is queued no matter how many logins cross the threshold
+        if(pendingLogins.size() >= flushThreshold && flushRequested.compareAndSet(false, true)){
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${portal.last-login.flush-interval:1000}")
+    public void flush(){
+        // Skip if another flush is running, it will pick up everything recorded so far
+        if(flushLock.tryLock()){
+            try {
+                writePendingLogins();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void drain(){
+        flushExecutor.shutdown();
+        flushLock.lock();
+        try {
+            writePendingLogins();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writePendingLogins(){
+        flushRequested.set(false);
+        if(pendingLogins.isEmpty()){
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>(pendingLogins.size());
+        for(Long userId : pendingLogins.keySet()){
+            PendingLogin pendingLogin = pendingLogins.remove(userId);
+            if(pendingLogin != null){
+                batch.add(new Object[]{toTimestamp(pendingLogin.lastLoginDateDisplay),
+                        toTimestamp(pendingLogin.lastLoginDate), userId});
+            }
+        }
+
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN, batch, UPDATE_LAST_LOGIN_TYPES)));
+        } catch (RuntimeException exception) {
+            // Login dates are informational, losing one batch must not break logins
+            LOGGER.error("Could not write " + batch.size() + " login dates: " + exception.getMessage());
+        }
+    }
+
+    private Timestamp toTimestamp(Date date){
+        return date == null ? null : new Timestamp(date.getTime());
+    }
+
+    private static class PendingLogin {
+        private final Date lastLoginDateDisplay;
+        private final Date lastLoginDate;
+
+        private PendingLogin(Date lastLoginDateDisplay, Date lastLoginDate) {
+            this.lastLoginDateDisplay = lastLoginDateDisplay;
+            this.lastLoginDate = lastLoginDate;
+        }
+    }
+}
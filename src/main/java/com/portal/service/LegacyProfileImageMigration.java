@@ -0,0 +1,102 @@
+package com.portal.service;
+
+import com.portal.exception.domain.ImageTooLargeException;
+import com.portal.exception.domain.NotAnImageFileException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+
+/* Images used to be stored in users.profile_image. On startup any left there are resized into user_image
+ * one user at a time and the old column is cleared, the column itself is left for the schema owner to drop */
+@Component
+public class LegacyProfileImageMigration {
+    private static final String SELECT_IDS_SQL = "select id from users where profile_image is not null";
+    // Claims the row until the commit, another instance starting at the same time skips it instead of saving it twice
+    private static final String SELECT_IMAGE_SQL = "select profile_image from users where id = ? " +
+            "and profile_image is not null for update skip locked";
+    private static final String CLEAR_IMAGE_SQL = "update users set profile_image = null where id = ?";
+    private static final String LEGACY_FILE_NAME = "profile_image";
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserImageService userImageService;
+    private final ImageFileStore imageFileStore;
+
+    public LegacyProfileImageMigration(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                       UserImageService userImageService, ImageFileStore imageFileStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userImageService = userImageService;
+        this.imageFileStore = imageFileStore;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateProfileImages() {
+        if(!hasLegacyColumn()){
+            return;
+        }
+        // The column is the only copy shared by every instance until the files are on a shared volume
+        if(!imageFileStore.isConfigured()){
+            LOGGER.warn("Legacy profile images are kept in users.profile_image until portal.image.store-directory is set");
+            return;
+        }
+        List<Long> userIds = jdbcTemplate.queryForList(SELECT_IDS_SQL, Long.class);
+        int moved = 0;
+        for(Long userId : userIds){
+            try {
+                if(Boolean.TRUE.equals(transactionTemplate.execute(status -> migrateProfileImage(userId)))){
+                    moved++;
+                }
+            } catch (RuntimeException exception) {
+                // Left in place so nothing is lost, it is tried again on the next start
+                LOGGER.warn("Could not move the profile image of user " + userId + ": " + exception.getMessage());
+            }
+        }
+        if(moved > 0){
+            LOGGER.info("Moved " + moved + " profile images to user_image");
+        }
+    }
+
+    // False when the image is already gone or being moved by another instance
+    private boolean migrateProfileImage(Long userId) {
+        List<byte[]> images = jdbcTemplate.queryForList(SELECT_IMAGE_SQL, byte[].class, userId);
+        if(images.isEmpty()){
+            return false;
+        }
+        try {
+            userImageService.saveImage(userId, new ByteArrayInputStream(images.get(0)), LEGACY_FILE_NAME);
+        } catch (NotAnImageFileException | ImageTooLargeException | IOException exception) {
+            throw new UncheckedIOException(new IOException(exception.getMessage(), exception));
+        }
+        jdbcTemplate.update(CLEAR_IMAGE_SQL, userId);
+        return true;
+    }
+
+    private boolean hasLegacyColumn() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            // PostgreSQL reports names in lower case, H2 in upper case
+            try(ResultSet columns = metaData.getColumns(null, null, "users", "profile_image")){
+                if(columns.next()){
+                    return true;
+                }
+            }
+            try(ResultSet columns = metaData.getColumns(null, null, "USERS", "PROFILE_IMAGE")){
+                return columns.next();
+            }
+        }));
+    }
+}
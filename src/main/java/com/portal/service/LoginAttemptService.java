@@ -1,60 +1,45 @@
 package com.portal.service;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.ExecutionException;
-
-import static java.util.concurrent.TimeUnit.MINUTES;
+import java.util.Locale;
 
 @Service
 public class LoginAttemptService {
     public static final int MAXIMUM_NUMBER_OF_ATTEMPTS = 3;
-    public static final int ATTEMPTS_INCREMENT = 1;
-    /* String is the username which is the key of the cache and Integer rep the number of time user tried to log in*/
-    private LoadingCache<String, Integer> loginAttemptCache;
-
-    public LoginAttemptService() {
-        super();
-        loginAttemptCache = CacheBuilder.newBuilder()
-                .expireAfterWrite(15, MINUTES)
-                .maximumSize(100) //Max of 100 entry at any given time
-                .build(new CacheLoader<String, Integer>() {
-                    @Override
-                    public Integer load(String key) throws Exception {
-                        return 0; // Initialize the cache value for each key to zero
-                    }
-                });
+    public static final int MAXIMUM_NUMBER_OF_ATTEMPTS_PER_IP_ADDRESS = 30;
+    private static final String USERNAME_KEY = "u:";
+    private static final String IP_ADDRESS_KEY = "ip:";
+    private final LoginAttemptStore loginAttemptStore;
+
+    public LoginAttemptService(LoginAttemptStore loginAttemptStore) {
+        this.loginAttemptStore = loginAttemptStore;
     }
 
     // remove user from cache
     public void evictUserFromLoginAttemptCache(String username){
-        loginAttemptCache.invalidate(username);
+        loginAttemptStore.reset(usernameKey(username));
     }
 
     public void addUserToLoginAttemptCache(String username){
-        int attempts = 0;
+        loginAttemptStore.increment(usernameKey(username));
+    }
 
-        try {
-            // Add one to attempt in cache
-            attempts = ATTEMPTS_INCREMENT + loginAttemptCache.get(username);
-        } catch (ExecutionException e) {
-            e.printStackTrace();
-        }
+    public boolean hasExceededMaxAttempts(String username){
+        return loginAttemptStore.getAttempts(usernameKey(username)) >= MAXIMUM_NUMBER_OF_ATTEMPTS;
+    }
 
-        // Added incremented value to cache
-        loginAttemptCache.put(username, attempts);
+    public void addIpAddressToLoginAttemptCache(String ipAddress){
+        loginAttemptStore.increment(IP_ADDRESS_KEY + ipAddress);
+    }
 
+    // Stops one client from guessing across many usernames, each staying under the per user limit
+    public boolean hasIpAddressExceededMaxAttempts(String ipAddress){
+        return loginAttemptStore.getAttempts(IP_ADDRESS_KEY + ipAddress) >= MAXIMUM_NUMBER_OF_ATTEMPTS_PER_IP_ADDRESS;
     }
 
-    public boolean hasExceededMaxAttempts(String username){
-        try {
-            return loginAttemptCache.get(username) >= MAXIMUM_NUMBER_OF_ATTEMPTS;
-        } catch (ExecutionException e) {
-            e.printStackTrace();
-        }
-        return false;
+    // Usernames are case-insensitive, so "Jamie" and "JAMIE" share one counter
+    private String usernameKey(String username){
+        return USERNAME_KEY + username.toLowerCase(Locale.ROOT);
     }
 }
@@ -0,0 +1,13 @@
+package com.portal.service;
+
+/* Where LoginAttemptService keeps its counters. Keys are already prefixed by the service
+ * and counts fade out once LOGIN_ATTEMPT_WINDOW has passed since the first failed attempt */
+public interface LoginAttemptStore {
+
+    // Records one failed attempt and returns the count including it
+    int increment(String key);
+
+    int getAttempts(String key);
+
+    void reset(String key);
+}
@@ -0,0 +1,78 @@
+package com.portal.service;
+
+import com.google.common.hash.Hashing;
+import com.portal.domain.RefreshToken;
+import com.portal.exception.domain.InvalidRefreshTokenException;
+import com.portal.repository.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+
+import static com.portal.constant.SecurityConstant.*;
+
+/* Refresh tokens are opaque random strings that can be traded once for a new access token
+ * and a new refresh token, so a client never has to send its password again until it expires */
+@Service
+@Transactional
+public class RefreshTokenService {
+    private static final int REFRESH_TOKEN_BYTES = 32;
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository) {
+        this.refreshTokenRepository = refreshTokenRepository;
+    }
+
+    public String issueRefreshToken(String username){
+        byte[] randomBytes = new byte[REFRESH_TOKEN_BYTES];
+        secureRandom.nextBytes(randomBytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes);
+
+        Date now = new Date();
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setUsername(username);
+        refreshToken.setCreatedAt(now);
+        refreshToken.setExpiresAt(new Date(now.getTime() + REFRESH_TOKEN_EXPIRATION_TIME));
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    /**
+     * Uses up the refresh token and returns the username it was issued to.
+     * A refresh token can only be used once, the caller is expected to issue a new one.
+     */
+    public String consumeRefreshToken(String rawToken) throws InvalidRefreshTokenException {
+        if(rawToken == null){
+            throw new InvalidRefreshTokenException(INVALID_REFRESH_TOKEN);
+        }
+        RefreshToken refreshToken = refreshTokenRepository.findRefreshTokenByTokenHash(hash(rawToken));
+        if(refreshToken == null || refreshToken.getExpiresAt().before(new Date())
+                || refreshTokenRepository.deleteRefreshTokenById(refreshToken.getId()) == 0){
+            throw new InvalidRefreshTokenException(INVALID_REFRESH_TOKEN);
+        }
+        return refreshToken.getUsername();
+    }
+
+    public void revokeRefreshTokens(String username){
+        refreshTokenRepository.deleteRefreshTokensByUsername(username);
+    }
+
+    @Scheduled(fixedDelay = REFRESH_TOKEN_CLEANUP_INTERVAL)
+    public void deleteExpiredRefreshTokens(){
+        int deleted = refreshTokenRepository.deleteExpiredRefreshTokens(new Date());
+        LOGGER.info("Deleted " + deleted + " expired refresh tokens");
+    }
+
+    private String hash(String rawToken){
+        return Hashing.sha256().hashString(rawToken, StandardCharsets.UTF_8).toString();
+    }
+}
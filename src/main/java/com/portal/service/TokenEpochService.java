@@ -0,0 +1,88 @@
+package com.portal.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* Keeps the current token epoch of every user in memory. A token is only accepted when the epoch
+ * it was issued with matches the current one, so bumping the epoch revokes every token of that user
+ * without a database lookup per request. The epoch itself lives in users.token_epoch, so revocations survive
+ * a restart and reach every instance: the copy kept here is read again after refresh-seconds at the latest.
+ * Users created before the column existed start at epoch 0, new rows start at the time they were inserted
+ * so a username that is deleted and taken again never accepts the tokens of its previous owner */
+@Service
+public class TokenEpochService {
+    public static final long INITIAL_EPOCH = 0L;
+    // No token carries it, so the tokens of a user that no longer exists are never current
+    private static final long NO_USER = -1L;
+    private static final String SELECT_EPOCH_SQL = "select token_epoch from users where lower(username) = lower(?)";
+    // Moves at least to the current time so the epoch never goes back to one an earlier token was issued with
+    private static final String REVOKE_SQL = "update users set token_epoch = greatest(token_epoch + 1, " +
+            "(extract(epoch from clock_timestamp()) * 1000)::bigint) where lower(username) = lower(?) returning token_epoch";
+    private static final int MAXIMUM_CACHED_USERS = 100_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    /* String is the username which is the subject of the token */
+    private final Cache<String, Long> tokenEpochs;
+
+    public TokenEpochService(JdbcTemplate jdbcTemplate,
+                             @Value("${portal.token-epoch.refresh-seconds:30}") long refreshSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tokenEpochs = CacheBuilder.newBuilder()
+                .maximumSize(MAXIMUM_CACHED_USERS)
+                .expireAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    // Read from the database, tokens are issued with the epoch every instance will load
+    public long getEpoch(String username){
+        return load(username);
+    }
+
+    public boolean isCurrent(String username, long epoch){
+        Long currentEpoch = tokenEpochs.getIfPresent(username);
+        if(currentEpoch == null){
+            currentEpoch = load(username);
+        }
+        return currentEpoch == epoch;
+    }
+
+    /* Invalidates all tokens issued to this user so far. Joins the surrounding transaction when there is one,
+     * the new epoch is only kept here once it commits so a rollback does not reject the tokens that are still valid */
+    public void revokeTokens(String username){
+        List<Long> epochs = jdbcTemplate.queryForList(REVOKE_SQL, Long.class, username);
+        long epoch = epochs.isEmpty() ? NO_USER : epochs.get(0);
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    tokenEpochs.put(username, epoch);
+                }
+            });
+        }else {
+            tokenEpochs.put(username, epoch);
+        }
+    }
+
+    // For changes made straight in the database, such as replacing every user
+    public void forgetAll(){
+        tokenEpochs.invalidateAll();
+    }
+
+    // Users that are not found are not kept, they are likely about to be created
+    private long load(String username){
+        List<Long> epochs = jdbcTemplate.queryForList(SELECT_EPOCH_SQL, Long.class, username);
+        if(epochs.isEmpty()){
+            return NO_USER;
+        }
+        tokenEpochs.put(username, epochs.get(0));
+        return epochs.get(0);
+    }
+}
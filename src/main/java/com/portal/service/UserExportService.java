@@ -0,0 +1,155 @@
+package com.portal.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.portal.enumeration.ExportColumn;
+import com.portal.enumeration.ExportFormat;
+import com.portal.exception.domain.InvalidExportException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/* Writes every user to a stream as CSV or NDJSON. Rows come from a server side cursor, fetch-size rows at a time,
+ * and go to the output as they are read, so memory use does not grow with the number of users.
+ * PostgreSQL only uses a cursor inside a transaction, hence the read-only transaction around the query */
+@Service
+public class UserExportService {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char CSV_SEPARATOR = ',';
+    private static final char QUOTE = '"';
+    private static final String NEW_LINE = "\n";
+    private final JdbcTemplate cursorJdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public UserExportService(DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                             @Value("${portal.user-export.fetch-size:1000}") int fetchSize) {
+        this.cursorJdbcTemplate = new JdbcTemplate(dataSource);
+        this.cursorJdbcTemplate.setFetchSize(fetchSize);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    // A comma separated list of ExportColumn field names, all columns when empty. Repeats are dropped
+    public List<ExportColumn> parseColumns(String columns) throws InvalidExportException {
+        if(!StringUtils.hasText(columns)){
+            return Arrays.asList(ExportColumn.values());
+        }
+        Set<ExportColumn> exportColumns = new LinkedHashSet<>();
+        for(String column : columns.split(",")){
+            exportColumns.add(ExportColumn.fromParameter(column));
+        }
+        return new ArrayList<>(exportColumns);
+    }
+
+    public void export(OutputStream outputStream, ExportFormat format, List<ExportColumn> columns, boolean gzip)
+            throws IOException {
+        if(gzip){
+            GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+            export(gzipOutputStream, format, columns);
+            gzipOutputStream.finish(); // Not closed, the response stream belongs to the container
+        }else{
+            export(outputStream, format, columns);
+        }
+    }
+
+    private void export(OutputStream outputStream, ExportFormat format, List<ExportColumn> columns) throws IOException {
+        String sql = "select " + columns.stream().map(ExportColumn::getColumnName).collect(Collectors.joining(", ")) +
+                " from users order by id";
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try {
+                    if(format == ExportFormat.CSV){
+                        writeCsv(sql, columns, outputStream);
+                    }else{
+                        writeNdjson(sql, columns, outputStream);
+                    }
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause(); // Usually the client going away, which also ends the query
+        }
+    }
+
+    private void writeCsv(String sql, List<ExportColumn> columns, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8), BUFFER_SIZE);
+        writer.write(columns.stream().map(ExportColumn::getFieldName).collect(Collectors.joining(String.valueOf(CSV_SEPARATOR))));
+        writer.write(NEW_LINE);
+        cursorJdbcTemplate.query(sql, resultSet -> {
+            try {
+                for(int i = 0; i < columns.size(); i++){
+                    if(i > 0){
+                        writer.write(CSV_SEPARATOR);
+                    }
+                    Object value = readValue(resultSet, i + 1);
+                    if(value != null){
+                        writer.write(escapeCsv(value.toString()));
+                    }
+                }
+                writer.write(NEW_LINE);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+        writer.flush();
+    }
+
+    private void writeNdjson(String sql, List<ExportColumn> columns, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        cursorJdbcTemplate.query(sql, resultSet -> {
+            try {
+                generator.writeStartObject();
+                for(int i = 0; i < columns.size(); i++){
+                    Object value = readValue(resultSet, i + 1);
+                    generator.writeFieldName(columns.get(i).getFieldName());
+                    if(value instanceof Boolean){
+                        generator.writeBoolean((Boolean) value);
+                    }else if(value == null){
+                        generator.writeNull();
+                    }else{
+                        generator.writeString(value.toString());
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw(NEW_LINE);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+        generator.flush();
+    }
+
+    // Dates are written as ISO-8601 instants in both formats
+    private Object readValue(ResultSet resultSet, int index) throws SQLException {
+        Object value = resultSet.getObject(index);
+        if(value instanceof Timestamp){
+            return ((Timestamp) value).toInstant().toString();
+        }
+        return value;
+    }
+
+    private String escapeCsv(String value) {
+        if(value.indexOf(CSV_SEPARATOR) < 0 && value.indexOf(QUOTE) < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0){
+            return value;
+        }
+        return QUOTE + value.replace("\"", "\"\"") + QUOTE;
+    }
+}
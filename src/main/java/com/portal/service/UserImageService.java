@@ -0,0 +1,93 @@
+package com.portal.service;
+
+import com.portal.domain.UserImage;
+import com.portal.enumeration.ImageSize;
+import com.portal.exception.domain.ImageTooLargeException;
+import com.portal.exception.domain.NotAnImageFileException;
+import com.portal.repository.UserImageRepository;
+import com.portal.repository.UserRepository;
+import com.portal.utility.ImageProcessor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.http.MediaType.IMAGE_JPEG_VALUE;
+
+/* Keeps the metadata of profile images in user_image, one row per ImageSize, and the files in ImageFileStore,
+ * so neither a user lookup nor an image download holds a whole image in memory */
+@Service
+@Transactional
+public class UserImageService {
+    private final UserImageRepository userImageRepository;
+    private final UserRepository userRepository;
+    private final ImageFileStore imageFileStore;
+    private final ImageProcessor imageProcessor;
+
+    public UserImageService(UserImageRepository userImageRepository, UserRepository userRepository,
+                            ImageFileStore imageFileStore, ImageProcessor imageProcessor) {
+        this.userImageRepository = userImageRepository;
+        this.userRepository = userRepository;
+        this.imageFileStore = imageFileStore;
+        this.imageProcessor = imageProcessor;
+    }
+
+    /**
+     * Resizes the uploaded image into every ImageSize, replaces the stored sizes of the user
+     * and bumps its profileImageVersion so the image urls change.
+     *
+     * @return the new version of the image
+     * @throws NotAnImageFileException if the upload does not start like a JPEG, PNG or GIF or cannot be decoded
+     * @throws ImageTooLargeException if the upload is longer than portal.image.maximum-upload-bytes
+     */
+    public long saveImage(Long userId, InputStream upload, String fileName)
+            throws NotAnImageFileException, ImageTooLargeException, IOException {
+        // Scaling happens before any image row is touched so a slow image holds no row locks
+        Map<ImageSize, byte[]> images = imageProcessor.process(upload, fileName);
+
+        Map<ImageSize, UserImage> storedImages = new HashMap<>();
+        for(UserImage userImage : userImageRepository.findUserImagesByUserId(userId)){
+            storedImages.put(userImage.getImageSize(), userImage);
+        }
+        Date now = new Date();
+        for(Map.Entry<ImageSize, byte[]> image : images.entrySet()){
+            saveImage(userId, image.getKey(), image.getValue(), storedImages.get(image.getKey()), now);
+        }
+        long version = now.getTime();
+        userRepository.updateProfileImageVersion(userId, version);
+        return version;
+    }
+
+    @Transactional(readOnly = true)
+    public UserImage findImage(String username, ImageSize imageSize) {
+        return userImageRepository.findUserImageByUsername(username, imageSize);
+    }
+
+    // Null when the file is missing, which only happens if the store was emptied by hand
+    public Path findImageFile(UserImage userImage) {
+        return imageFileStore.find(userImage.getContentHash());
+    }
+
+    // Files are left to the ImageFileStore sweep, another user may have the same image
+    public void deleteImage(Long userId) {
+        userImageRepository.deleteAll(userImageRepository.findUserImagesByUserId(userId));
+    }
+
+    private void saveImage(Long userId, ImageSize imageSize, byte[] data, UserImage userImage, Date now) throws IOException {
+        if(userImage == null){
+            userImage = new UserImage();
+            userImage.setUserId(userId);
+            userImage.setImageSize(imageSize);
+        }
+        userImage.setContentType(IMAGE_JPEG_VALUE);
+        userImage.setContentLength(data.length);
+        userImage.setContentHash(imageFileStore.store(data));
+        userImage.setUpdatedAt(now);
+        userImageRepository.save(userImage);
+    }
+}
@@ -0,0 +1,319 @@
+package com.portal.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.portal.domain.UserImportReport;
+import com.portal.domain.UserImportResult;
+import com.portal.domain.UserSummary;
+import com.portal.enumeration.ImportStatus;
+import com.portal.enumeration.Role;
+import com.portal.exception.domain.HashingCapacityExceededException;
+import com.portal.repository.UserRepository;
+import com.portal.utility.BoundedPasswordEncoder;
+import com.portal.utility.CsvLineParser;
+import net.bytebuddy.utility.RandomString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.portal.constant.UserImplServiceConstant.EMAIL_ALREADY_EXISTS;
+import static com.portal.constant.UserImplServiceConstant.USERNAME_ALREADY_EXISTS;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/* Creates users from a CSV file (with a header line) or NDJSON, one user per line, with the same fields as /user/add.
+ * Lines are read as they arrive and written in chunks: one query per chunk finds taken usernames and emails,
+ * generated passwords are hashed on every hashing thread, and the rows go in as one JDBC batch per transaction */
+@Service
+public class UserImportService {
+    public static final String MISSING_FIELD = "Missing field: ";
+    public static final String NO_SUCH_ROLE = "No role: ";
+    public static final String DUPLICATE_USERNAME_IN_FILE = "Username appears more than once in the file";
+    public static final String DUPLICATE_EMAIL_IN_FILE = "Email appears more than once in the file";
+    public static final String TOO_MANY_ROWS = "Import stopped, at most %d users can be imported at once";
+    public static final String COLUMN_COUNT_MISMATCH = "Expected %d columns but found %d";
+    public static final String NOT_SAVED = "User could not be saved";
+    private static final String FIRST_NAME = "firstName";
+    private static final String LAST_NAME = "lastName";
+    private static final String USERNAME = "username";
+    private static final String EMAIL = "email";
+    private static final String ROLE = "role";
+    private static final String IS_ACTIVE = "isActive";
+    private static final String IS_NON_LOCKED = "isNonLocked";
+    // One round trip for all the ids of a chunk, from the sequence Hibernate uses for Users
+    private static final String NEXT_IDS_SQL = "select nextval('hibernate_sequence') from generate_series(1, ?)";
+    private static final String INSERT_USER_SQL = "insert into users (id, user_id, first_name, last_name, username, " +
+            "password, email, join_date, role, is_active, is_not_locked) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final UserSummaryCache userSummaryCache;
+    private final UserSearchIndex userSearchIndex;
+    private final ObjectReader jsonLineReader;
+    private final int chunkSize;
+    private final int maximumRows;
+
+    public UserImportService(UserRepository userRepository, JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate, BoundedPasswordEncoder passwordEncoder,
+                             UserSummaryCache userSummaryCache, UserSearchIndex userSearchIndex, ObjectMapper objectMapper,
+                             @Value("${portal.user-import.chunk-size:500}") int chunkSize,
+                             @Value("${portal.user-import.maximum-rows:100000}") int maximumRows) {
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.userSummaryCache = userSummaryCache;
+        this.userSearchIndex = userSearchIndex;
+        this.jsonLineReader = objectMapper.readerFor(Map.class);
+        this.chunkSize = chunkSize;
+        this.maximumRows = maximumRows;
+    }
+
+    public UserImportReport importUsers(InputStream input, boolean csv) throws IOException {
+        UserImportReport report = new UserImportReport();
+        // Lower-cased, so two lines differing only in case are caught before they reach the unique indexes
+        Set<String> usernamesInFile = new HashSet<>();
+        Set<String> emailsInFile = new HashSet<>();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        int lineNumber = 0;
+        int rows = 0;
+
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(input, UTF_8))){
+            List<String> header = null;
+            if(csv){
+                String headerLine = reader.readLine();
+                lineNumber++;
+                if(headerLine == null){
+                    return report;
+                }
+                header = CsvLineParser.parse(headerLine.trim());
+            }
+
+            String line;
+            while((line = reader.readLine()) != null){
+                lineNumber++;
+                if(!StringUtils.hasText(line)){
+                    continue;
+                }
+                if(++rows > maximumRows){
+                    report.add(failed(lineNumber, null, String.format(TOO_MANY_ROWS, maximumRows)));
+                    break;
+                }
+
+                ImportRow row;
+                try {
+                    row = toRow(lineNumber, csv ? readCsvLine(header, line) : readJsonLine(line));
+                } catch (IllegalArgumentException exception) {
+                    report.add(failed(lineNumber, null, exception.getMessage()));
+                    continue;
+                } catch (JsonProcessingException exception) {
+                    report.add(failed(lineNumber, null, exception.getOriginalMessage()));
+                    continue;
+                }
+                if(!usernamesInFile.add(row.username.toLowerCase(Locale.ROOT))){
+                    report.add(failed(lineNumber, row.username, DUPLICATE_USERNAME_IN_FILE));
+                    continue;
+                }
+                if(!emailsInFile.add(row.email.toLowerCase(Locale.ROOT))){
+                    report.add(failed(lineNumber, row.username, DUPLICATE_EMAIL_IN_FILE));
+                    continue;
+                }
+
+                chunk.add(row);
+                if(chunk.size() == chunkSize){
+                    importChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+        }
+        if(!chunk.isEmpty()){
+            importChunk(chunk, report);
+        }
+
+        report.sortByLine();
+        LOGGER.info("Imported " + report.getCreated() + " users, " + report.getFailed() + " lines failed");
+        return report;
+    }
+
+    private void importChunk(List<ImportRow> chunk, UserImportReport report) {
+        List<ImportRow> rows = withoutExistingUsers(chunk, report);
+        if(rows.isEmpty()){
+            return;
+        }
+
+        // Nobody is told these passwords, like /user/add the account is taken over through a password reset
+        List<String> hashes;
+        try {
+            hashes = passwordEncoder.encodeAll(rows.stream().map(row -> RandomString.make(10)).collect(Collectors.toList()));
+        } catch (HashingCapacityExceededException exception) {
+            rows.forEach(row -> report.add(failed(row.line, row.username, exception.getMessage())));
+            return;
+        }
+        for(int i = 0; i < rows.size(); i++){
+            rows.get(i).password = hashes.get(i);
+        }
+
+        try {
+            insert(rows);
+        } catch (DataIntegrityViolationException exception) {
+            // Someone took one of these usernames or emails since the check, the rest of the chunk is tried once more
+            rows = withoutExistingUsers(rows, report);
+            try {
+                insert(rows);
+            } catch (DataIntegrityViolationException again) {
+                LOGGER.error(NOT_SAVED, again);
+                rows.forEach(row -> report.add(failed(row.line, row.username, NOT_SAVED)));
+                return;
+            }
+        }
+
+        for(ImportRow row : rows){
+            userSummaryCache.invalidate(row.username, row.email); // Drops cached misses
+            userSearchIndex.update(new UserSummary(row.id, row.userId, row.firstName, row.lastName, row.username, row.email,
+                    null, null, null, row.joinDate, row.role.name(), row.active, row.notLocked));
+            report.add(new UserImportResult(row.line, row.username, ImportStatus.CREATED, null));
+        }
+    }
+
+    // Reports the rows whose username or email is already taken and returns the others
+    private List<ImportRow> withoutExistingUsers(List<ImportRow> rows, UserImportReport report) {
+        if(rows.isEmpty()){
+            return rows;
+        }
+        Set<String> existingUsernames = new HashSet<>(userRepository.findExistingUsernames(
+                rows.stream().map(row -> row.username.toLowerCase(Locale.ROOT)).collect(Collectors.toList())));
+        Set<String> existingEmails = new HashSet<>(userRepository.findExistingEmails(
+                rows.stream().map(row -> row.email.toLowerCase(Locale.ROOT)).collect(Collectors.toList())));
+
+        List<ImportRow> newRows = new ArrayList<>(rows.size());
+        for(ImportRow row : rows){
+            if(existingUsernames.contains(row.username.toLowerCase(Locale.ROOT))){
+                report.add(failed(row.line, row.username, USERNAME_ALREADY_EXISTS));
+            }else if(existingEmails.contains(row.email.toLowerCase(Locale.ROOT))){
+                report.add(failed(row.line, row.username, EMAIL_ALREADY_EXISTS));
+            }else{
+                newRows.add(row);
+            }
+        }
+        return newRows;
+    }
+
+    private void insert(List<ImportRow> rows) {
+        if(rows.isEmpty()){
+            return;
+        }
+        Timestamp joinDate = new Timestamp(System.currentTimeMillis());
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, rows.size());
+            for(int i = 0; i < rows.size(); i++){
+                rows.get(i).id = ids.get(i);
+                rows.get(i).userId = RandomString.make(10);
+                rows.get(i).joinDate = joinDate;
+            }
+            jdbcTemplate.batchUpdate(INSERT_USER_SQL, rows, rows.size(), (statement, row) -> {
+                statement.setLong(1, row.id);
+                statement.setString(2, row.userId);
+                statement.setString(3, row.firstName);
+                statement.setString(4, row.lastName);
+                statement.setString(5, row.username);
+                statement.setString(6, row.password);
+                statement.setString(7, row.email);
+                statement.setTimestamp(8, joinDate);
+                statement.setString(9, row.role.name());
+                statement.setBoolean(10, row.active);
+                statement.setBoolean(11, row.notLocked);
+            });
+        });
+    }
+
+    private Map<String, String> readCsvLine(List<String> header, String line) {
+        List<String> values = CsvLineParser.parse(line);
+        if(values.size() != header.size()){
+            throw new IllegalArgumentException(String.format(COLUMN_COUNT_MISMATCH, header.size(), values.size()));
+        }
+        Map<String, String> fields = new HashMap<>();
+        for(int i = 0; i < header.size(); i++){
+            fields.put(header.get(i).trim(), values.get(i));
+        }
+        return fields;
+    }
+
+    private Map<String, String> readJsonLine(String line) throws JsonProcessingException {
+        Map<?, ?> json = jsonLineReader.readValue(line);
+        Map<String, String> fields = new HashMap<>();
+        json.forEach((name, value) -> fields.put(String.valueOf(name), value == null ? null : String.valueOf(value)));
+        return fields;
+    }
+
+    private ImportRow toRow(int line, Map<String, String> fields) {
+        ImportRow row = new ImportRow();
+        row.line = line;
+        row.firstName = required(fields, FIRST_NAME);
+        row.lastName = required(fields, LAST_NAME);
+        row.username = required(fields, USERNAME);
+        row.email = required(fields, EMAIL);
+        row.role = toRole(fields.get(ROLE));
+        // Missing flags default to an active, unlocked account
+        row.active = !"false".equalsIgnoreCase(trim(fields.get(IS_ACTIVE)));
+        row.notLocked = !"false".equalsIgnoreCase(trim(fields.get(IS_NON_LOCKED)));
+        return row;
+    }
+
+    private Role toRole(String role) {
+        if(!StringUtils.hasText(role)){
+            return Role.ROLE_USER;
+        }
+        try {
+            return Role.valueOf(role.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException(NO_SUCH_ROLE + role);
+        }
+    }
+
+    private String required(Map<String, String> fields, String name) {
+        String value = trim(fields.get(name));
+        if(!StringUtils.hasText(value)){
+            throw new IllegalArgumentException(MISSING_FIELD + name);
+        }
+        return value;
+    }
+
+    private String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+
+    private UserImportResult failed(int line, String username, String message) {
+        return new UserImportResult(line, username, ImportStatus.FAILED, message);
+    }
+
+    private static class ImportRow {
+        private int line;
+        private long id;
+        private String userId;
+        private Timestamp joinDate;
+        private String firstName;
+        private String lastName;
+        private String username;
+        private String email;
+        private Role role;
+        private boolean active;
+        private boolean notLocked;
+        private String password;
+    }
+}
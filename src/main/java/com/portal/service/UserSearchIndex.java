@@ -0,0 +1,312 @@
+package com.portal.service;
+
+import com.portal.domain.UserSummary;
+import com.portal.domain.Users;
+import com.portal.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/* In memory prefix index over first name, last name, username and email. Every field is split into words on spaces,
+ * dots, @, _, - and +, and each word maps to the users it belongs to. The longest word of a query (usually the most
+ * selective) finds the candidates with one range lookup in the sorted map, every candidate is then scored against all
+ * the query words from its own word list. Built from the database at startup and every rebuild interval (which also
+ * picks up changes made by other instances), kept current in between by UserServiceImpl and UserImportService
+ * after their transactions commit */
+@Service
+public class UserSearchIndex {
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[\\s.@_\\-+]+");
+    private static final int USERNAME_WEIGHT = 3;
+    private static final int EMAIL_WEIGHT = 2;
+    private static final int NAME_WEIGHT = 1;
+    private static final int EXACT_MATCH_FACTOR = 2;
+    /* Bounds the work of short prefixes such as "a" on a large directory. Exact word matches sort first in the map
+     * so they are always seen, beyond this the ranking is among the first matches found */
+    private static final int MAXIMUM_MATCHES = 1_000;
+    // Bounds queries whose words rarely occur together, such as two common first names
+    private static final int MAXIMUM_CANDIDATES = 5_000;
+    private static final int REBUILD_PAGE_SIZE = 1_000;
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+    private final UserRepository userRepository;
+    private volatile Index index = new Index();
+    // Changes made while a rebuild runs are applied to the new index as well, so the swap does not lose them
+    private volatile Index rebuilding;
+    /* Held while reading or swapping index and rebuilding together, so a change never sees the old index without
+     * the new one. Not the monitor of rebuild, which is held for the whole rebuild */
+    private final Object swapLock = new Object();
+
+    public UserSearchIndex(UserRepository userRepository, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        Gauge.builder("portal.user.search.documents", this, searchIndex -> searchIndex.index.size())
+                .description("Users in the search index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns up to limit users matching every word of the query, best first. Username matches rank above email
+     * matches and those above name matches, a whole word above a prefix of one.
+     */
+    public List<UserSummary> search(String query, int limit) {
+        List<String> words = split(query);
+        if(words.isEmpty()){
+            return Collections.emptyList();
+        }
+        String anchor = Collections.max(words, Comparator.comparingInt(String::length));
+        Index current = index;
+
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1);
+        // A user with several words starting with the anchor is found once per word
+        Set<Long> seen = new HashSet<>();
+        int matches = 0;
+        int candidates = 0;
+        for(Set<Long> ids : current.postings.subMap(anchor, true, anchor + Character.MAX_VALUE, false).values()){
+            for(Long id : ids){
+                Document document = current.documents.get(id);
+                if(document == null || !seen.add(id)){
+                    continue;
+                }
+                if(++candidates > MAXIMUM_CANDIDATES){
+                    return toResults(top);
+                }
+                int score = document.score(words);
+                if(score > 0){
+                    top.offer(new Match(document, score));
+                    if(top.size() > limit){
+                        top.poll(); // Drops the lowest ranked
+                    }
+                    if(++matches >= MAXIMUM_MATCHES){
+                        return toResults(top);
+                    }
+                }
+            }
+        }
+        return toResults(top);
+    }
+
+    private List<UserSummary> toResults(PriorityQueue<Match> top) {
+        List<UserSummary> results = new ArrayList<>(top.size());
+        while(!top.isEmpty()){
+            results.add(top.poll().document.summary);
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    // Applied once the surrounding transaction commits, right away outside of one
+    public void update(Users user) {
+        update(UserSummary.from(user));
+    }
+
+    public void update(UserSummary summary) {
+        afterCommit(() -> apply(current -> current.put(summary)));
+    }
+
+    public void remove(Long id) {
+        afterCommit(() -> apply(current -> current.remove(id)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${portal.user-search.rebuild-interval:900000}",
+            fixedDelayString = "${portal.user-search.rebuild-interval:900000}")
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        Index next = new Index();
+        synchronized(swapLock){
+            rebuilding = next;
+        }
+        try {
+            long afterId = 0;
+            List<UserSummary> page;
+            do {
+                page = userRepository.findUserSummariesAfter(afterId, PageRequest.of(0, REBUILD_PAGE_SIZE));
+                for(UserSummary summary : page){
+                    // A user changed or removed meanwhile is already in the new index in its latest state
+                    next.putIfAbsent(summary);
+                    afterId = summary.getId();
+                }
+            } while(page.size() == REBUILD_PAGE_SIZE);
+            synchronized(swapLock){
+                index = next;
+                rebuilding = null;
+            }
+        } finally {
+            synchronized(swapLock){
+                rebuilding = null;
+            }
+        }
+        LOGGER.info("Indexed " + next.size() + " users for search in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    // Applies the change to the index searched now and to the one being rebuilt, if any
+    private void apply(Consumer<Index> change) {
+        Index current;
+        Index next;
+        synchronized(swapLock){
+            current = index;
+            next = rebuilding;
+        }
+        change.accept(current);
+        if(next != null){
+            change.accept(next);
+        }
+    }
+
+    private void afterCommit(Runnable change) {
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        }else{
+            change.run();
+        }
+    }
+
+    // Empty words are dropped, an empty prefix would match everyone
+    private static List<String> split(String text) {
+        if(text == null){
+            return Collections.emptyList();
+        }
+        List<String> words = new ArrayList<>();
+        for(String word : WORD_SEPARATORS.split(text.toLowerCase(Locale.ROOT))){
+            if(!word.isEmpty()){
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /* Writers are serialised on the index, readers never lock: postings are concurrent sets and a document
+     * is replaced as a whole, so a search sees each user either before or after a change */
+    private static class Index {
+        /* Indexed word -> ids of the users having it */
+        private final ConcurrentSkipListMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+        private final ConcurrentMap<Long, Document> documents = new ConcurrentHashMap<>();
+        // Ids removed while a rebuild runs, so the rebuild does not bring them back from an older page
+        private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+
+        synchronized void put(UserSummary summary) {
+            Document previous = documents.put(summary.getId(), new Document(summary));
+            if(previous != null){
+                unindex(previous);
+            }
+            removed.remove(summary.getId());
+            index(documents.get(summary.getId()));
+        }
+
+        synchronized void putIfAbsent(UserSummary summary) {
+            if(!documents.containsKey(summary.getId()) && !removed.contains(summary.getId())){
+                Document document = new Document(summary);
+                documents.put(summary.getId(), document);
+                index(document);
+            }
+        }
+
+        synchronized void remove(Long id) {
+            Document previous = documents.remove(id);
+            if(previous != null){
+                unindex(previous);
+            }
+            removed.add(id);
+        }
+
+        int size() {
+            return documents.size();
+        }
+
+        private void index(Document document) {
+            for(String word : document.words){
+                postings.computeIfAbsent(word, key -> ConcurrentHashMap.newKeySet()).add(document.summary.getId());
+            }
+        }
+
+        private void unindex(Document document) {
+            for(String word : document.words){
+                postings.computeIfPresent(word, (key, ids) -> {
+                    ids.remove(document.summary.getId());
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+
+    /* A user with its distinct words, each with the weight of the best field it appears in */
+    private static class Document {
+        private final UserSummary summary;
+        private final String[] words;
+        private final int[] weights;
+
+        Document(UserSummary summary) {
+            Map<String, Integer> weightsByWord = new LinkedHashMap<>();
+            addWords(weightsByWord, summary.getUsername(), USERNAME_WEIGHT);
+            addWords(weightsByWord, summary.getEmail(), EMAIL_WEIGHT);
+            addWords(weightsByWord, summary.getFirstName(), NAME_WEIGHT);
+            addWords(weightsByWord, summary.getLastName(), NAME_WEIGHT);
+            this.summary = summary;
+            this.words = weightsByWord.keySet().toArray(new String[0]);
+            this.weights = weightsByWord.values().stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Sum over the query words of the best word each is a prefix of, 0 when one of them matches nothing
+        int score(List<String> queryWords) {
+            int score = 0;
+            for(String queryWord : queryWords){
+                int best = 0;
+                for(int i = 0; i < words.length; i++){
+                    if(words[i].startsWith(queryWord)){
+                        best = Math.max(best, weights[i] * (words[i].length() == queryWord.length() ? EXACT_MATCH_FACTOR : 1));
+                    }
+                }
+                if(best == 0){
+                    return 0;
+                }
+                score += best;
+            }
+            return score;
+        }
+
+        private static void addWords(Map<String, Integer> weightsByWord, String value, int weight) {
+            for(String word : split(value)){
+                weightsByWord.merge(word, weight, Math::max);
+            }
+        }
+    }
+
+    // Ordered from worst to best, equal scores by username so the order is stable
+    private static class Match implements Comparable<Match> {
+        private final Document document;
+        private final int score;
+
+        Match(Document document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            if(score != other.score){
+                return Integer.compare(score, other.score);
+            }
+            return String.valueOf(other.document.summary.getUsername()).compareTo(String.valueOf(document.summary.getUsername()));
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.portal.service;
 
+import com.portal.domain.UserFilter;
+import com.portal.domain.UserSort;
+import com.portal.domain.UserSummary;
 import com.portal.domain.Users;
 import com.portal.exception.domain.*;
+import com.portal.utility.PageCursor;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.mail.MessagingException;
@@ -11,22 +15,26 @@ import java.util.List;
 public interface UserService {
 
     Users register(String firstName, String lastname, String username, String email) throws UserNotFoundException, EmailExistException, UsernameExistException, MessagingException;
-    List<Users> getUsers();
+    /* Returns up to size users matching the filter in the given order, starting after the cursor or from the first
+     * when it is null. Size is capped at MAXIMUM_PAGE_SIZE */
+    List<UserSummary> getUsers(UserFilter filter, UserSort sort, PageCursor after, int size) throws InvalidCursorException;
     Users findByUsername(String username);
     Users findByEmail(String email);
+    /* Served from UserSummaryCache, null when there is no such user */
+    UserSummary findSummaryByUsername(String username);
 
     /*This is used to add a user in the system when you are already in the system*/
     Users addNewUser(String firstName, String lastname, String username, String email,
                      String role, boolean isNonLocked, boolean isActive, MultipartFile profileImage
-    ) throws UserNotFoundException, EmailExistException, UsernameExistException, MessagingException, NotAnImageFileException, IOException;
+    ) throws UserNotFoundException, EmailExistException, UsernameExistException, MessagingException, NotAnImageFileException, ImageTooLargeException, IOException;
 
     Users updateUser(String currentUsername, String newFirstName, String newLastname, String newUsername, String newEmail,
                      String role, boolean isNonLocked, boolean isActive, MultipartFile profileImage
-    ) throws UserNotFoundException, EmailExistException, UsernameExistException, NotAnImageFileException, IOException;
+    ) throws UserNotFoundException, EmailExistException, UsernameExistException, NotAnImageFileException, ImageTooLargeException, IOException;
 
     void deleteUser(String username);
 
     void resetPassword(String email) throws EmailNotFoundException, MessagingException;
 
-    Users updateProfileImage(String username, MultipartFile profileImage) throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException;
+    Users updateProfileImage(String username, MultipartFile profileImage) throws UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException, ImageTooLargeException;
 }
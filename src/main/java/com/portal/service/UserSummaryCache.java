@@ -0,0 +1,109 @@
+package com.portal.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.portal.domain.UserSummary;
+import com.portal.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/* Read-through cache of user summaries in front of UserRepository, one cache by username and one by email.
+ * Misses are cached too (as an empty Optional) since most username and email checks are for names nobody has.
+ * Every write to a user must call invalidate with the old and the new username and email */
+@Service
+public class UserSummaryCache {
+    public static final String BY_USERNAME_CACHE = "portal.user.summary.by.username";
+    public static final String BY_EMAIL_CACHE = "portal.user.summary.by.email";
+    private final UserRepository userRepository;
+    private final Cache<String, Optional<UserSummary>> summariesByUsername;
+    private final Cache<String, Optional<UserSummary>> summariesByEmail;
+
+    public UserSummaryCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                            @Value("${portal.user-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${portal.user-cache.time-to-live-seconds:60}") long timeToLiveSeconds) {
+        this.userRepository = userRepository;
+        // The TTL bounds how long a change made by another instance or straight in the database goes unseen
+        this.summariesByUsername = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.summariesByEmail = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLiveSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        GuavaCacheMetrics.monitor(meterRegistry, summariesByUsername, BY_USERNAME_CACHE);
+        GuavaCacheMetrics.monitor(meterRegistry, summariesByEmail, BY_EMAIL_CACHE);
+    }
+
+    public UserSummary findByUsername(String username) {
+        if(username == null){
+            return null;
+        }
+        return load(summariesByUsername, key(username), () -> userRepository.findUserSummaryByUsername(username));
+    }
+
+    public UserSummary findByEmail(String email) {
+        if(email == null){
+            return null;
+        }
+        return load(summariesByEmail, key(email), () -> userRepository.findUserSummaryByEmail(email));
+    }
+
+    /**
+     * Drops the entries of these usernames and emails, nulls are ignored. Inside a transaction the entries
+     * are dropped again after commit, so a read that ran before the commit cannot put the old row back.
+     */
+    public void invalidate(String username, String email) {
+        evict(username, email);
+        if(TransactionSynchronizationManager.isSynchronizationActive()){
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(username, email);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        summariesByUsername.invalidateAll();
+        summariesByEmail.invalidateAll();
+    }
+
+    private void evict(String username, String email) {
+        if(username != null){
+            summariesByUsername.invalidate(key(username));
+        }
+        if(email != null){
+            summariesByEmail.invalidate(key(email));
+        }
+    }
+
+    // Lookups are case-insensitive, so are the keys
+    private String key(String usernameOrEmail) {
+        return usernameOrEmail.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private UserSummary load(Cache<String, Optional<UserSummary>> cache, String key, SummaryLoader loader) {
+        try {
+            return cache.get(key, () -> Optional.ofNullable(loader.load())).orElse(null);
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+
+    private interface SummaryLoader {
+        UserSummary load();
+    }
+}
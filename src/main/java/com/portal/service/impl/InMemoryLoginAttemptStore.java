@@ -0,0 +1,37 @@
+package com.portal.service.impl;
+
+import com.portal.service.LoginAttemptStore;
+import com.portal.utility.WindowedCountMinSketch;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import static com.portal.constant.SecurityConstant.LOGIN_ATTEMPT_WINDOW;
+
+/* Counters of this node only, lost on restart. Fine for a single instance, use the jdbc store otherwise */
+@Service
+@ConditionalOnProperty(name = "portal.login-attempt.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryLoginAttemptStore implements LoginAttemptStore {
+    private static final int SKETCH_DEPTH = 4;
+    /* 4 x 512K ints per window, about 16MB for both windows. Overestimates stay negligible up to a few hundred
+     * thousand failed attempts per window, more than the hashing pool can verify in that time */
+    private static final int SKETCH_WIDTH = 1 << 19;
+    /* Fixed memory counter of failed attempts, old attempts fade out after one to two windows.
+     * Unlike a size capped cache, flooding it with new usernames cannot push out the counters of real users */
+    private final WindowedCountMinSketch loginAttempts =
+            new WindowedCountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH, LOGIN_ATTEMPT_WINDOW);
+
+    @Override
+    public int increment(String key) {
+        return loginAttempts.increment(key);
+    }
+
+    @Override
+    public int getAttempts(String key) {
+        return loginAttempts.estimate(key);
+    }
+
+    @Override
+    public void reset(String key) {
+        loginAttempts.reset(key);
+    }
+}
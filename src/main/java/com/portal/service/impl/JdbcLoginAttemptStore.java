@@ -0,0 +1,118 @@
+package com.portal.service.impl;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.portal.service.LoginAttemptStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static com.portal.constant.SecurityConstant.LOGIN_ATTEMPT_CLEANUP_INTERVAL;
+import static com.portal.constant.SecurityConstant.LOGIN_ATTEMPT_WINDOW;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/* Counters shared by every node through the login_attempt table, so N replicas still allow only
+ * MAXIMUM_NUMBER_OF_ATTEMPTS guesses and a restart keeps them. Reads go through a short lived near-cache,
+ * which means a lock triggered on another node is seen here at most near-cache-millis later */
+@Service
+@ConditionalOnProperty(name = "portal.login-attempt.store", havingValue = "jdbc")
+public class JdbcLoginAttemptStore implements LoginAttemptStore {
+    private static final int NEAR_CACHE_SIZE = 10_000;
+    private static final int CLEANUP_BATCH_SIZE = 1_000;
+    // Restarts the count when the previous window is over, otherwise adds one, in a single row update
+    private static final String INCREMENT_SQL = "update login_attempt set " +
+            "attempts = case when expires_at <= ? then 1 else attempts + 1 end, " +
+            "expires_at = case when expires_at <= ? then ? else expires_at end " +
+            "where attempt_key = ?";
+    private static final String INSERT_SQL = "insert into login_attempt (attempt_key, attempts, expires_at) values (?, 1, ?)";
+    private static final String SELECT_SQL = "select attempts from login_attempt where attempt_key = ? and expires_at > ?";
+    private static final String DELETE_SQL = "delete from login_attempt where attempt_key = ?";
+    private static final String DELETE_EXPIRED_SQL = "delete from login_attempt where attempt_key in " +
+            "(select attempt_key from login_attempt where expires_at <= ? limit " + CLEANUP_BATCH_SIZE + ")";
+
+    private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+    private final JdbcTemplate jdbcTemplate;
+    private final long window;
+    private final LoadingCache<String, Integer> nearCache;
+
+    @Autowired
+    public JdbcLoginAttemptStore(JdbcTemplate jdbcTemplate,
+                                 @Value("${portal.login-attempt.near-cache-millis:5000}") long nearCacheMillis) {
+        this(jdbcTemplate, LOGIN_ATTEMPT_WINDOW, nearCacheMillis);
+    }
+
+    JdbcLoginAttemptStore(JdbcTemplate jdbcTemplate, long window, long nearCacheMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.window = window;
+        this.nearCache = CacheBuilder.newBuilder()
+                .maximumSize(NEAR_CACHE_SIZE)
+                .expireAfterWrite(nearCacheMillis, MILLISECONDS)
+                .build(CacheLoader.from(this::loadAttempts));
+    }
+
+    @Override
+    public int increment(String key) {
+        int attempts = incrementAttempts(key);
+        nearCache.put(key, attempts);
+        return attempts;
+    }
+
+    @Override
+    public int getAttempts(String key) {
+        return nearCache.getUnchecked(key);
+    }
+
+    @Override
+    public void reset(String key) {
+        jdbcTemplate.update(DELETE_SQL, key);
+        nearCache.invalidate(key);
+    }
+
+    // Deletes in small batches so cleanup never holds locks on a large part of the table
+    @Scheduled(fixedDelay = LOGIN_ATTEMPT_CLEANUP_INTERVAL)
+    public void deleteExpiredAttempts() {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int deleted = 0;
+        int batch;
+        do {
+            batch = jdbcTemplate.update(DELETE_EXPIRED_SQL, now);
+            deleted += batch;
+        } while(batch == CLEANUP_BATCH_SIZE);
+        if(deleted > 0){
+            LOGGER.info("Deleted " + deleted + " expired login attempt counters");
+        }
+    }
+
+    private int incrementAttempts(String key) {
+        while(true){
+            long now = System.currentTimeMillis();
+            Timestamp nowTimestamp = new Timestamp(now);
+            Timestamp expiresAt = new Timestamp(now + window);
+            if(jdbcTemplate.update(INCREMENT_SQL, nowTimestamp, nowTimestamp, expiresAt, key) > 0){
+                return loadAttempts(key);
+            }
+            try {
+                jdbcTemplate.update(INSERT_SQL, key, expiresAt);
+                return 1;
+            } catch (DuplicateKeyException e) {
+                // Another node inserted the first attempt in between, the update will find it now
+            }
+        }
+    }
+
+    private int loadAttempts(String key) {
+        List<Integer> attempts = jdbcTemplate.queryForList(SELECT_SQL, Integer.class, key,
+                new Timestamp(System.currentTimeMillis()));
+        return attempts.isEmpty() ? 0 : attempts.get(0);
+    }
+}
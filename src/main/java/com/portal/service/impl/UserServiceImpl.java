@@ -1,21 +1,34 @@
 package com.portal.service.impl;
 
+import com.portal.domain.UserFilter;
+import com.portal.domain.UserSort;
+import com.portal.domain.UserSummary;
 import com.portal.domain.Users;
 import com.portal.domain.UserPrincipal;
 import com.portal.enumeration.Role;
 import com.portal.exception.domain.*;
 import com.portal.repository.UserRepository;
 import com.portal.service.EmailService;
+import com.portal.service.LastLoginRecorder;
 import com.portal.service.LoginAttemptService;
+import com.portal.service.RefreshTokenService;
+import com.portal.service.TokenEpochService;
+import com.portal.service.UserImageService;
+import com.portal.service.UserSearchIndex;
 import com.portal.service.UserService;
+import com.portal.service.UserSummaryCache;
+import com.portal.utility.PageCursor;
 import net.bytebuddy.utility.RandomString;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -24,33 +37,49 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.mail.MessagingException;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.InputStream;
 import java.util.Date;
 import java.util.List;
 
 import static com.portal.constant.FileConstant.*;
 import static com.portal.constant.UserImplServiceConstant.*;
 import static com.portal.enumeration.Role.ROLE_USER;
-import static org.springframework.http.MediaType.*;
 
 @Service
-@Transactional //Manage propagation
+/* Manage propagation. A duplicate username or email is only found by the unique index on flush, which marks the
+ * transaction rollback-only, so those exceptions roll back instead of failing the commit */
+@Transactional(rollbackFor = {UsernameExistException.class, EmailExistException.class})
 @Qualifier("userDetailsService") //Telling spring where to search for userDetailsService to avoid ambiguity
-public class UserServiceImpl implements UserService, UserDetailsService {
+public class UserServiceImpl implements UserService, UserDetailsService, UserDetailsPasswordService {
 
     private final Logger LOGGER = LoggerFactory.getLogger(getClass()); //getClass() is same as UserServiceImpl.class
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
     private final LoginAttemptService loginAttemptService;
     private final EmailService emailService;
-
-    public UserServiceImpl(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder,
-                           LoginAttemptService loginAttemptService, EmailService emailService)
+    private final TokenEpochService tokenEpochService;
+    private final RefreshTokenService refreshTokenService;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final UserImageService userImageService;
+    private final UserSummaryCache userSummaryCache;
+    private final UserSearchIndex userSearchIndex;
+
+    public UserServiceImpl(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                           LoginAttemptService loginAttemptService, EmailService emailService,
+                           TokenEpochService tokenEpochService, RefreshTokenService refreshTokenService,
+                           LastLoginRecorder lastLoginRecorder, UserImageService userImageService,
+                           UserSummaryCache userSummaryCache, UserSearchIndex userSearchIndex)
     {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.loginAttemptService = loginAttemptService;
         this.emailService = emailService;
+        this.tokenEpochService = tokenEpochService;
+        this.refreshTokenService = refreshTokenService;
+        this.lastLoginRecorder = lastLoginRecorder;
+        this.userImageService = userImageService;
+        this.userSummaryCache = userSummaryCache;
+        this.userSearchIndex = userSearchIndex;
     }
 
     /**
@@ -67,26 +96,51 @@ public class UserServiceImpl implements UserService, UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        Users user = userRepository.findUserByUsername(username.trim());
+        Users user = userRepository.findUserForAuthenticationByUsername(username.trim());
         if(user == null){
             LOGGER.error(NO_USER_FOUND_BY_USERNAME + username);
             throw new UsernameNotFoundException(NO_USER_FOUND_BY_USERNAME + username);
         }else {
+            boolean wasNotLocked = user.isNotLocked();
             validateLoginAttempt(user);
             user.setLastLoginDateDisplay(user.getLastLoginDate());
             user.setLastLoginDate(new Date());
-            userRepository.save(user);
+            // Login dates are written in batches, only a change of the lock has to be stored right away
+            lastLoginRecorder.recordLogin(user.getId(), user.getLastLoginDate());
+            if(wasNotLocked != user.isNotLocked()){
+                userRepository.updateNotLocked(user.getId(), user.isNotLocked());
+                userSummaryCache.invalidate(user.getUsername(), user.getEmail());
+                userSearchIndex.update(user);
+            }
             UserPrincipal userPrincipal = new UserPrincipal(user);
             LOGGER.info("Returning found user by username: " + username);
             return userPrincipal;
         }
     }
 
+    /**
+     * Called by DaoAuthenticationProvider after a successful login when the stored hash is weaker than
+     * what the password encoder produces today, so hashes get upgraded without users noticing.
+     *
+     * @param userDetails the user to modify the password for
+     * @param newPassword the password already encoded with the current algorithm and cost
+     * @return the user with the new password
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        Users user = ((UserPrincipal) userDetails).getUser();
+        userRepository.updatePassword(user.getId(), newPassword);
+        user.setPassword(newPassword);
+        LOGGER.info("Upgraded password hash of user: " + user.getUsername());
+        return userDetails;
+    }
+
     private void validateLoginAttempt(Users user) {
         if(user.isNotLocked()){
             /// If account is not locked, check if user exceed attempt
             if(loginAttemptService.hasExceededMaxAttempts(user.getUsername())){
                 user.setNotLocked(false);
+                revokeSessions(user.getUsername());
             }else{
                 user.setNotLocked(true);
             }
@@ -112,15 +166,17 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         user.setActive(true);
         user.setNotLocked(true);
         user.setRole(ROLE_USER.name());
-        user.setAuthorities(ROLE_USER.getAuthorities());
 //        LOGGER.info("New user password is " + "'"+password+"'"); // Todo Remove in production
+        saveUser(user); // Before the email, so no password is sent for an account that was never created
+        userSummaryCache.invalidate(user.getUsername(), user.getEmail()); // Drops the cached misses of both
         emailService.sendNewPasswordEmail(firstName.trim(), password.trim(), email.trim());
-        return userRepository.save(user);
+        return user;
     }
 
     @Override
-    public List<Users> getUsers() {
-        return userRepository.findAll();
+    public List<UserSummary> getUsers(UserFilter filter, UserSort sort, PageCursor after, int size) throws InvalidCursorException {
+        int pageSize = Math.min(Math.max(size, 1), MAXIMUM_PAGE_SIZE);
+        return userRepository.findUserSummaries(filter, sort, after, pageSize);
     }
 
     @Override
@@ -133,10 +189,15 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         return userRepository.findUserByEmail(email);
     }
 
+    @Override
+    public UserSummary findSummaryByUsername(String username) {
+        return userSummaryCache.findByUsername(username);
+    }
+
     @Override
     public Users addNewUser(String firstName, String lastname, String username,
                             String email, String role, boolean isNonLocked, boolean isActive, MultipartFile profileImage
-    ) throws UserNotFoundException, EmailExistException, UsernameExistException, NotAnImageFileException, IOException {
+    ) throws UserNotFoundException, EmailExistException, UsernameExistException, NotAnImageFileException, ImageTooLargeException, IOException {
         validateNewUsernameAndEmail("", username, email);
         Users user = new Users();
         String password = generatePassword();
@@ -150,8 +211,8 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         user.setActive(isActive);
         user.setNotLocked(isNonLocked);
         user.setRole(getRoleEnumName(role).name());
-        user.setAuthorities(getRoleEnumName(role).getAuthorities());
-        userRepository.save(user);
+        saveUser(user);
+        userSummaryCache.invalidate(user.getUsername(), user.getEmail());
         saveProfileImage(user, profileImage);
 //        emailService.sendNewPasswordEmail(firstName, password, email);
         return user;
@@ -160,8 +221,15 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     @Override
     public Users updateUser(String currentUsername, String newFirstName, String newLastname, String newUsername,
                             String newEmail, String role, boolean isNonLocked, boolean isActive, MultipartFile profileImage)
-            throws UserNotFoundException, EmailExistException, UsernameExistException, NotAnImageFileException, IOException {
+            throws UserNotFoundException, EmailExistException, UsernameExistException, NotAnImageFileException, ImageTooLargeException, IOException {
         Users currentUser = validateNewUsernameAndEmail(currentUsername, newUsername, newEmail);
+        // Tokens carry the username and authorities, so they must not outlive a change to either or to the status
+        if(!currentUser.getUsername().equals(newUsername.trim()) || !currentUser.getRole().equals(getRoleEnumName(role).name())
+                || currentUser.isActive() != isActive || currentUser.isNotLocked() != isNonLocked){
+            revokeSessions(currentUser.getUsername());
+        }
+        userSummaryCache.invalidate(currentUser.getUsername(), currentUser.getEmail());
+        userSummaryCache.invalidate(newUsername.trim(), newEmail.trim());
         currentUser.setFirstName(newFirstName.trim());
         currentUser.setLastName(newLastname.trim());
         currentUser.setUsername(newUsername.trim());
@@ -169,8 +237,7 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         currentUser.setActive(isActive);
         currentUser.setNotLocked(isNonLocked);
         currentUser.setRole(getRoleEnumName(role).name());
-        currentUser.setAuthorities(getRoleEnumName(role).getAuthorities());
-        userRepository.save(currentUser);
+        saveUser(currentUser);
         saveProfileImage(currentUser, profileImage);
         return currentUser;
     }
@@ -178,7 +245,11 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     @Override
     public void deleteUser(String username){
         Users user = userRepository.findUserByUsername(username);
+        userImageService.deleteImage(user.getId());
         userRepository.deleteById(user.getId());
+        userSummaryCache.invalidate(user.getUsername(), user.getEmail());
+        userSearchIndex.remove(user.getId());
+        revokeSessions(user.getUsername());
     }
 
     @Override
@@ -190,26 +261,28 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         String password = generatePassword();
         user.setPassword(encodePassword(password));
         userRepository.save(user);
+        revokeSessions(user.getUsername());
         emailService.sendNewPasswordEmail(user.getFirstName(), password, email);
     }
 
     @Override
     public Users updateProfileImage(String username, MultipartFile profileImage) throws
-            UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException {
+            UserNotFoundException, EmailExistException, UsernameExistException, IOException, NotAnImageFileException, ImageTooLargeException {
 
         Users user = validateNewUsernameAndEmail(username, null, null);
         saveProfileImage(user, profileImage);
         return user;
     }
 
-    private void saveProfileImage(Users user, MultipartFile profileImage) throws NotAnImageFileException, IOException {
+    private void saveProfileImage(Users user, MultipartFile profileImage) throws NotAnImageFileException, ImageTooLargeException, IOException {
         if(profileImage != null){
-            if(!Arrays.asList(IMAGE_JPEG_VALUE, IMAGE_PNG_VALUE, IMAGE_GIF_VALUE).contains(profileImage.getContentType())){
-                throw new NotAnImageFileException(
-                        profileImage.getOriginalFilename() + " is not an image file! Please upload an image!"
-                );
+            // Read from the multipart temporary file as a stream, the type is checked from its leading bytes
+            try(InputStream upload = profileImage.getInputStream()){
+                user.setProfileImageVersion(userImageService.saveImage(user.getId(), upload,
+                        profileImage.getOriginalFilename()));
             }
-            user.setProfileImage(profileImage.getBytes());
+            userSummaryCache.invalidate(user.getUsername(), user.getEmail());
+            userSearchIndex.update(user);
         }
     }
 
@@ -219,6 +292,25 @@ public class UserServiceImpl implements UserService, UserDetailsService {
                 .path(USER_IMAGE_PATH + username + FORWARD_SLASH + username + DOT + JPG_EXTENSION).toUriString();
     }
 
+    /* The unique indexes are what keeps two concurrent registrations from taking the same username or email,
+     * validateNewUsernameAndEmail only gives the common case a friendly answer before writing */
+    private void saveUser(Users user) throws UsernameExistException, EmailExistException {
+        try {
+            userRepository.saveAndFlush(user);
+            userSearchIndex.update(user);
+        } catch (DataIntegrityViolationException exception) {
+            String constraintName = exception.getCause() instanceof ConstraintViolationException ?
+                    ((ConstraintViolationException) exception.getCause()).getConstraintName() : null;
+            if(USERNAME_UNIQUE_INDEX.equalsIgnoreCase(constraintName)){
+                throw new UsernameExistException(USERNAME_ALREADY_EXISTS);
+            }
+            if(EMAIL_UNIQUE_INDEX.equalsIgnoreCase(constraintName)){
+                throw new EmailExistException(EMAIL_ALREADY_EXISTS);
+            }
+            throw exception;
+        }
+    }
+
     private Role getRoleEnumName(String role) {
         return Role.valueOf(role.toUpperCase());
     }
@@ -231,6 +323,12 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         return ServletUriComponentsBuilder.fromCurrentContextPath().path(DEFAULT_USER_IMAGE_PATH + username).toUriString();
     }
 
+    // Ends every session of the user, access tokens through the epoch and refresh tokens by deleting them
+    private void revokeSessions(String username) {
+        tokenEpochService.revokeTokens(username);
+        refreshTokenService.revokeRefreshTokens(username);
+    }
+
     private String encodePassword(String password) {
         return passwordEncoder.encode(password);
     }
@@ -253,12 +351,27 @@ public class UserServiceImpl implements UserService, UserDetailsService {
     private Users validateNewUsernameAndEmail(String currentUsername, String newUsername, String newEmail) throws
             UserNotFoundException, UsernameExistException, EmailExistException
     {
-        Users userByNewUsername = findByUsername(newUsername);
-        Users userByNewEmail = findByEmail(newEmail);
+        // One query for the current user and whoever holds the new username or email, all compared ignoring case
+        String current = trimToEmpty(currentUsername);
+        String username = trimToEmpty(newUsername);
+        String email = trimToEmpty(newEmail);
+        Users currentUser = null;
+        Users userByNewUsername = null;
+        Users userByNewEmail = null;
+        for(Users user : userRepository.findUsersByUsernameOrEmail(current, username, email)){
+            if(user.getUsername().equalsIgnoreCase(current)){
+                currentUser = user;
+            }
+            if(user.getUsername().equalsIgnoreCase(username)){
+                userByNewUsername = user;
+            }
+            if(email.equalsIgnoreCase(user.getEmail())){
+                userByNewEmail = user;
+            }
+        }
 
         // Check if currentUsername is blank
         if(StringUtils.hasText(currentUsername)){
-            Users currentUser = findByUsername(currentUsername);
             if(currentUser == null){
                 throw new UserNotFoundException(NO_USER_FOUND_BY_USERNAME + currentUsername);
             }
@@ -286,4 +399,9 @@ public class UserServiceImpl implements UserService, UserDetailsService {
         }
     }
 
+    // An empty string matches no user, unlike null which the query could not bind as a string
+    private String trimToEmpty(String value) {
+        return value == null ? "" : value.trim();
+    }
+
 }
@@ -0,0 +1,145 @@
+package com.portal.utility;
+
+import com.portal.exception.domain.HashingCapacityExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/* Runs every hash and verification on a fixed pool with one thread per core and a bounded queue,
+ * so a burst of logins cannot take every request thread and every core.
+ * When the queue is full the caller gets HashingCapacityExceededException right away instead of waiting */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    public static final String HASHING_CAPACITY_EXCEEDED = "The server is busy. Please try again shortly";
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor hashingExecutor;
+    private final int threads;
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public BoundedPasswordEncoder(PasswordEncoder passwordEncoder, int queueCapacity, MeterRegistry meterRegistry) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.passwordEncoder = passwordEncoder;
+        this.threads = threads;
+        this.hashingExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.queueWaitTimer = Timer.builder("portal.password.hashing.queue.wait")
+                .description("Time a hashing task waits for a free hashing thread")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("portal.password.hashing.rejected")
+                .description("Hashing tasks turned away because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("portal.password.hashing.queue.depth", hashingExecutor, executor -> executor.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return runBounded(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return runBounded(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Hashes a batch across all hashing threads. At most one task per thread is queued at a time,
+     * so a login arriving during a batch waits behind one hash per thread instead of the whole batch.
+     *
+     * @return the hashes in the order of the passwords
+     * @throws HashingCapacityExceededException if logins have filled the queue
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        Semaphore inFlight = new Semaphore(threads);
+        List<Future<String>> results = new ArrayList<>(rawPasswords.size());
+        try {
+            for(CharSequence rawPassword : rawPasswords){
+                inFlight.acquire();
+                try {
+                    results.add(hashingExecutor.submit(() -> {
+                        try {
+                            return passwordEncoder.encode(rawPassword);
+                        } finally {
+                            inFlight.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException exception) {
+                    inFlight.release();
+                    rejectedCounter.increment();
+                    throw new HashingCapacityExceededException(HASHING_CAPACITY_EXCEEDED);
+                }
+            }
+        } catch (InterruptedException exception) {
+            results.forEach(result -> result.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        } catch (HashingCapacityExceededException exception) {
+            results.forEach(result -> result.cancel(true));
+            throw exception;
+        }
+
+        List<String> hashes = new ArrayList<>(results.size());
+        for(Future<String> result : results){
+            hashes.add(await(result));
+        }
+        return hashes;
+    }
+
+    // Only reads the hash prefix, cheap enough to stay on the calling thread
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    public void shutdown() {
+        hashingExecutor.shutdown();
+    }
+
+    private <T> T runBounded(Callable<T> hashingTask) {
+        long submittedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = hashingExecutor.submit(() -> {
+                queueWaitTimer.record(System.nanoTime() - submittedAt, NANOSECONDS);
+                return hashingTask.call();
+            });
+        } catch (RejectedExecutionException exception) {
+            rejectedCounter.increment();
+            throw new HashingCapacityExceededException(HASHING_CAPACITY_EXCEEDED);
+        }
+        return await(result);
+    }
+
+    private <T> T await(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException exception) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if(cause instanceof RuntimeException){
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error){
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.portal.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/* Splits one CSV record into fields. Fields may be quoted, with "" for a quote inside one.
+ * A record has to fit on one line, quoted line breaks are not supported */
+public class CsvLineParser {
+    public static final String UNTERMINATED_QUOTE = "Unterminated quoted field";
+    private static final char SEPARATOR = ',';
+    private static final char QUOTE = '"';
+
+    private CsvLineParser() {
+    }
+
+    public static List<String> parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for(int i = 0; i < line.length(); i++){
+            char c = line.charAt(i);
+            if(quoted){
+                if(c == QUOTE && i + 1 < line.length() && line.charAt(i + 1) == QUOTE){
+                    field.append(QUOTE);
+                    i++;
+                }else if(c == QUOTE){
+                    quoted = false;
+                }else{
+                    field.append(c);
+                }
+            }else if(c == QUOTE){
+                quoted = true;
+            }else if(c == SEPARATOR){
+                fields.add(field.toString());
+                field.setLength(0);
+            }else{
+                field.append(c);
+            }
+        }
+        if(quoted){
+            throw new IllegalArgumentException(UNTERMINATED_QUOTE);
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
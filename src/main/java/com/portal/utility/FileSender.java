@@ -0,0 +1,76 @@
+package com.portal.utility;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/* Writes a file to the response. On Tomcat with sendfile the file is handed to the kernel after the request returns
+ * and never passes through the heap, elsewhere it is copied through a buffer like any other stream.
+ * A single byte range is honoured, anything else gets the whole file as allowed by RFC 7233 */
+@Component
+public class FileSender {
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    public void send(Path file, String contentType, String etag, HttpServletRequest request,
+                     HttpServletResponse response) throws IOException {
+        long length = Files.size(file);
+        long offset = 0;
+        long count = length;
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        HttpRange range = getRequestedRange(request, etag);
+        if(range != null){
+            try {
+                offset = range.getRangeStart(length);
+                count = range.getRangeEnd(length) - offset + 1;
+            } catch (IllegalArgumentException e) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + (offset + count - 1) + "/" + length);
+        }
+        response.setContentLengthLong(count);
+
+        if(Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))){
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, offset);
+            request.setAttribute(SENDFILE_END, offset + count);
+            return;
+        }
+        try(InputStream inputStream = Files.newInputStream(file)){
+            StreamUtils.copyRange(inputStream, response.getOutputStream(), offset, offset + count - 1);
+        }
+    }
+
+    private HttpRange getRequestedRange(HttpServletRequest request, String etag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if(rangeHeader == null || (ifRange != null && !ifRange.equals(etag))){
+            return null;
+        }
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            ranges = Collections.emptyList();
+        }
+        return ranges.size() == 1 ? ranges.get(0) : null;
+    }
+}
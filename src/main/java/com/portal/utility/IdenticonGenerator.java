@@ -0,0 +1,78 @@
+package com.portal.utility;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+
+/* Default avatars drawn in process: a 5x5 grid mirrored around the middle column, cells and colour taken
+ * from the SHA-256 of the username, so the same username always gets the same PNG. Rendered PNGs are
+ * kept in a bounded LRU cache, a couple of KB each */
+@Component
+public class IdenticonGenerator {
+    public static final String PNG_FORMAT = "png";
+    private static final int GRID_SIZE = 5;
+    private static final int CELL_SIZE = 50;
+    private static final int MARGIN = 25;
+    private static final int IMAGE_SIZE = GRID_SIZE * CELL_SIZE + 2 * MARGIN; // 300px like the robohash images before
+    private static final Color BACKGROUND = new Color(240, 240, 240);
+    private static final int CACHE_SIZE = 5_000;
+    private final Cache<String, byte[]> identicons = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build();
+
+    public byte[] generate(String username) {
+        try {
+            return identicons.get(username, () -> render(username));
+        } catch (ExecutionException exception) {
+            throw new UncheckedIOException(new IOException(exception.getCause()));
+        }
+    }
+
+    private byte[] render(String username) throws IOException {
+        byte[] hash = Hashing.sha256().hashString(username, StandardCharsets.UTF_8).asBytes();
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(BACKGROUND);
+            graphics.fillRect(0, 0, IMAGE_SIZE, IMAGE_SIZE);
+            graphics.setColor(getColor(hash));
+            // One bit per cell of the left three columns, the right two mirror them
+            for(int row = 0; row < GRID_SIZE; row++){
+                for(int column = 0; column < (GRID_SIZE + 1) / 2; column++){
+                    int bit = row * 3 + column;
+                    if((hash[bit / 8] >> (bit % 8) & 1) == 1){
+                        fillCell(graphics, row, column);
+                        fillCell(graphics, row, GRID_SIZE - 1 - column);
+                    }
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, PNG_FORMAT, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private void fillCell(Graphics2D graphics, int row, int column) {
+        graphics.fillRect(MARGIN + column * CELL_SIZE, MARGIN + row * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+    }
+
+    // Hue from the hash, saturation and brightness kept in a range that reads well on the light background
+    private Color getColor(byte[] hash) {
+        float hue = ((hash[28] & 0xFF) << 8 | (hash[29] & 0xFF)) / 65536f;
+        float saturation = 0.45f + (hash[30] & 0xFF) / 255f * 0.2f;
+        float brightness = 0.6f + (hash[31] & 0xFF) / 255f * 0.15f;
+        return Color.getHSBColor(hue, saturation, brightness);
+    }
+}
@@ -0,0 +1,184 @@
+package com.portal.utility;
+
+import com.portal.enumeration.ImageFormat;
+import com.portal.enumeration.ImageSize;
+import com.portal.exception.domain.ImageTooLargeException;
+import com.portal.exception.domain.NotAnImageFileException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.portal.constant.FileConstant.NOT_AN_IMAGE_FILE;
+
+/* Turns an uploaded image into one JPEG per ImageSize. The upload is read as a stream: its format is taken
+ * from the leading bytes, reading stops once it passes the upload limit, and it is decoded once, already
+ * subsampled close to the largest size needed, so heap use does not grow with the size of the file.
+ * Every size is then scaled and encoded in parallel on a bounded pool */
+@Component
+public class ImageProcessor {
+    public static final String JPEG_FORMAT = "jpeg";
+    public static final String IMAGE_TOO_LARGE = "The image is larger than the limit of %d KB";
+    private static final int UPLOAD_BUFFER_SIZE = 8 * 1024;
+    private static final float JPEG_QUALITY = 0.85f;
+    // Decoding more than this is refused, it would take about 200MB of heap as a BufferedImage
+    private static final long MAXIMUM_PIXELS = 50_000_000L;
+    private final ThreadPoolExecutor imageExecutor;
+    private final long maximumUploadBytes;
+
+    public ImageProcessor(@Value("${portal.image.processing.queue-capacity:32}") int queueCapacity,
+                          @Value("${portal.image.maximum-upload-bytes:10485760}") long maximumUploadBytes) {
+        this.maximumUploadBytes = maximumUploadBytes;
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        // When the queue is full the uploading thread does the work itself, which slows uploads down instead of failing them
+        this.imageExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-processing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public Map<ImageSize, byte[]> process(InputStream upload, String fileName)
+            throws NotAnImageFileException, ImageTooLargeException, IOException {
+        BufferedImage source = decode(upload, fileName);
+
+        Map<ImageSize, Future<byte[]>> pending = new EnumMap<>(ImageSize.class);
+        for(ImageSize imageSize : ImageSize.values()){
+            pending.put(imageSize, imageExecutor.submit(() -> encodeJpeg(scale(source, imageSize.getDimension()))));
+        }
+
+        Map<ImageSize, byte[]> images = new EnumMap<>(ImageSize.class);
+        try {
+            for(Map.Entry<ImageSize, Future<byte[]>> entry : pending.entrySet()){
+                images.put(entry.getKey(), entry.getValue().get());
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException(exception);
+        } catch (ExecutionException exception) {
+            throw new IOException(exception.getCause());
+        }
+        return images;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        imageExecutor.shutdown();
+    }
+
+    private BufferedImage decode(InputStream upload, String fileName)
+            throws NotAnImageFileException, ImageTooLargeException, IOException {
+        BufferedInputStream bufferedUpload = new BufferedInputStream(upload, UPLOAD_BUFFER_SIZE);
+        ImageFormat imageFormat = detectFormat(bufferedUpload);
+        if(imageFormat == null){
+            throw new NotAnImageFileException(fileName + NOT_AN_IMAGE_FILE);
+        }
+
+        SizeLimitedInputStream limitedUpload = new SizeLimitedInputStream(bufferedUpload, maximumUploadBytes);
+        // ImageIO caches what it reads in a temporary file, not on the heap
+        try(ImageInputStream imageInputStream = ImageIO.createImageInputStream(limitedUpload)){
+            // Only the decoder of the detected format may read the upload
+            ImageReader reader = ImageIO.getImageReadersByFormatName(imageFormat.getFormatName()).next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if((long) width * height > MAXIMUM_PIXELS){
+                    throw new NotAnImageFileException(fileName + NOT_AN_IMAGE_FILE);
+                }
+                // Skip pixels while decoding but keep at least twice the largest size for a clean downscale
+                int subsampling = Math.max(1, Math.max(width, height) / (ImageSize.FULL.getDimension() * 2));
+                ImageReadParam readParam = reader.getDefaultReadParam();
+                readParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, readParam);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException exception) {
+            if(limitedUpload.isLimitExceeded()){
+                throw new ImageTooLargeException(String.format(IMAGE_TOO_LARGE, maximumUploadBytes / 1024));
+            }
+            if(exception instanceof IIOException){
+                // The leading bytes looked right but the rest is not a valid image
+                throw new NotAnImageFileException(fileName + NOT_AN_IMAGE_FILE);
+            }
+            throw exception;
+        }
+    }
+
+    private ImageFormat detectFormat(BufferedInputStream upload) throws IOException {
+        byte[] header = new byte[ImageFormat.SIGNATURE_LENGTH];
+        upload.mark(header.length);
+        int length = 0;
+        int read;
+        while(length < header.length && (read = upload.read(header, length, header.length - length)) != -1){
+            length += read;
+        }
+        upload.reset();
+        return ImageFormat.detect(header, length);
+    }
+
+    /* Halves the image until it is within twice the target, then scales the rest in one bicubic pass.
+     * Never scales up. The result is RGB on white since JPEG has no transparency */
+    private BufferedImage scale(BufferedImage source, int dimension) {
+        double ratio = Math.min(1d, (double) dimension / Math.max(source.getWidth(), source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        while(current.getWidth() / 2 >= targetWidth * 2 && current.getHeight() / 2 >= targetHeight * 2){
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
+        return draw(current, targetWidth, targetHeight, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height, Object interpolation) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(JPEG_FORMAT).next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try(ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)){
+            ImageWriteParam writeParam = writer.getDefaultWriteParam();
+            writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            writeParam.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), writeParam);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -5,24 +5,36 @@ import com.auth0.jwt.JWT;
 import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
 import static com.portal.constant.SecurityConstant.*;
 import static java.util.Arrays.stream;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import com.auth0.jwt.JWTCreator;
 import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.portal.domain.PermissionAuthenticationToken;
+import com.portal.domain.PermissionSet;
 import com.portal.domain.UserPrincipal;
+import com.portal.domain.VerifiedToken;
+import com.portal.enumeration.Permission;
+import com.portal.service.TokenEpochService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
 import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -30,68 +42,108 @@ import java.util.stream.Collectors;
 @Component
 public class JWTTokenProvider {
 
-    @Value("${jwt.secret}")
-    private String secret;
     private final Logger LOGGER = LoggerFactory.getLogger(getClass());
+    private final Algorithm algorithm;
+    // JWTVerifier is thread safe so it is built once instead of once per call
+    private final JWTVerifier verifier;
+    /* Key is the SHA-256 of the raw token so bearer tokens are never kept in memory as is */
+    private final Cache<HashCode, VerifiedToken> verifiedTokenCache;
+    private final TokenEpochService tokenEpochService;
+    // When on, authorities are written as a single Perms bitmask instead of the Authorities array
+    private final boolean compactAuthorities;
+
+    public JWTTokenProvider(@Value("${jwt.secret}") String secret, TokenEpochService tokenEpochService,
+                            @Value("${jwt.compact-authorities:false}") boolean compactAuthorities) {
+        this.tokenEpochService = tokenEpochService;
+        this.compactAuthorities = compactAuthorities;
+        this.algorithm = HMAC512(secret);
+        this.verifier = JWT.require(algorithm).withIssuer(BARCA_JAMES_LLC).build();
+        this.verifiedTokenCache = CacheBuilder.newBuilder()
+                .maximumSize(VERIFIED_TOKEN_CACHE_SIZE)
+                .expireAfterWrite(EXPIRATION_TIME, MILLISECONDS) // No token outlives this, exact expiry is checked on read
+                .build();
+    }
 
     public String generateJwtToken(UserPrincipal userPrincipal){
-//        LOGGER.info("THE SECRET BEING USED IS -->" + secret);
         String [] claims = getClaimsFromUser(userPrincipal);
-        return JWT.create()
+        JWTCreator.Builder builder = JWT.create()
                 .withIssuer(BARCA_JAMES_LLC)
                 .withAudience(BARCA_JAMES_ADMINISTRATION)
                 .withIssuedAt(new Date())
                 .withSubject(userPrincipal.getUsername())
-                .withArrayClaim(AUTHORITIES, claims)
-                .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .sign(HMAC512(secret.getBytes()));
+                .withClaim(TOKEN_EPOCH, tokenEpochService.getEpoch(userPrincipal.getUsername()))
+                .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME));
+
+        int permissionMask = Permission.toMask(claims);
+        // Authorities without a permission bit can only be written out in full
+        if(compactAuthorities && permissionMask != Permission.UNKNOWN_MASK){
+            builder.withClaim(PERMISSIONS, permissionMask);
+        }else{
+            builder.withArrayClaim(AUTHORITIES, claims);
+        }
+        return builder.sign(algorithm);
     }
 
-    public List<GrantedAuthority> getAuthorities(String token){
-        String[] claims= getClaimsFromToken(token);
-        return stream(claims).map(SimpleGrantedAuthority::new).collect(Collectors.toList());
+    /**
+     * Verifies the signature of the token once and returns the subject, authorities and expiry.
+     * Tokens seen before are served from memory until they expire.
+     *
+     * @throws JWTVerificationException if the token is invalid or expired
+     */
+    public VerifiedToken verifyToken(String token){
+        HashCode key = Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+        VerifiedToken verifiedToken = verifiedTokenCache.getIfPresent(key);
+
+        if(verifiedToken == null || verifiedToken.isExpired(System.currentTimeMillis())){
+            // Expired entries are verified again so the caller gets the same TokenExpiredException as before
+            verifiedTokenCache.invalidate(key);
+            verifiedToken = decode(verifier.verify(token));
+            verifiedTokenCache.put(key, verifiedToken);
+        }
+        return verifiedToken;
     }
 
     //This tell spring that the user is authenticated so the request should be processed
     public Authentication getAuthentication(String username, List<GrantedAuthority> authorities,
-                                            HttpServletRequest request){
-        UsernamePasswordAuthenticationToken userPasswordAuthToken =
-                new UsernamePasswordAuthenticationToken(username, null, authorities);
+                                            PermissionSet permissions, HttpServletRequest request){
+        PermissionAuthenticationToken userPasswordAuthToken =
+                new PermissionAuthenticationToken(username, authorities, permissions);
 
         userPasswordAuthToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
         return userPasswordAuthToken;
     }
 
-    //Check if token is valid
-    public boolean isTokenValid(String username, String token){
-        JWTVerifier verifier = getJwtVerifier();
-        return StringUtils.hasText(username) && !isTokenExpired(verifier, token);
-    }
-
-    public String getSubject(String token){
-        JWTVerifier verifier = getJwtVerifier();
-        return verifier.verify(token).getSubject();
-    }
-
-    private boolean isTokenExpired(JWTVerifier verifier, String token) {
-        Date expiredAt = verifier.verify(token).getExpiresAt();
-        return expiredAt.before(new Date());
+    private VerifiedToken decode(DecodedJWT decodedJWT) {
+        Date expiresAt = decodedJWT.getExpiresAt();
+        if(expiresAt == null){
+            throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED);
+        }
+        List<GrantedAuthority> authorities = getAuthoritiesFromToken(decodedJWT);
+        // Tokens issued before epochs existed carry no claim and belong to the initial epoch
+        Long epoch = decodedJWT.getClaim(TOKEN_EPOCH).asLong();
+        return new VerifiedToken(decodedJWT.getSubject(), authorities, expiresAt.getTime(),
+                epoch == null ? TokenEpochService.INITIAL_EPOCH : epoch);
     }
 
-    private String[] getClaimsFromToken(String token){
-        JWTVerifier jwtVerifier = getJwtVerifier();
-        return jwtVerifier.verify(token).getClaim(AUTHORITIES).asArray(String.class);
-    }
+    // Reads the compact Perms claim when present and falls back to the Authorities array of older tokens
+    private List<GrantedAuthority> getAuthoritiesFromToken(DecodedJWT decodedJWT) {
+        Integer permissionMask = decodedJWT.getClaim(PERMISSIONS).asInt();
+        if(permissionMask != null){
+            if(!Permission.isValidMask(permissionMask)){
+                throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED);
+            }
+            return Permission.toAuthorities(permissionMask);
+        }
 
-    private JWTVerifier getJwtVerifier() {
-        JWTVerifier verifier;
-        try {
-            Algorithm algorithm = HMAC512(secret);
-            verifier = JWT.require(algorithm).withIssuer(BARCA_JAMES_LLC).build();
-        }catch(JWTVerificationException exception){
-            throw new JWTVerificationException(TOKEN_CANNOT_BE_VERIFIED);
+        String[] claims = decodedJWT.getClaim(AUTHORITIES).asArray(String.class);
+        if(claims == null){
+            return Collections.emptyList();
+        }
+        int claimsMask = Permission.toMask(claims);
+        if(claimsMask != Permission.UNKNOWN_MASK){
+            return Permission.toAuthorities(claimsMask);
         }
-        return verifier;
+        return Collections.unmodifiableList(stream(claims).map(SimpleGrantedAuthority::new).collect(Collectors.toList()));
     }
 
     private String[] getClaimsFromUser(UserPrincipal userPrincipal){
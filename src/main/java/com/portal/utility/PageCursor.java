@@ -0,0 +1,45 @@
+package com.portal.utility;
+
+import com.portal.exception.domain.InvalidCursorException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/* Opaque cursor handed to clients for keyset pagination. It holds the id and the sort value of the last row of a
+ * page, the next page starts right after it so no rows are counted or skipped in the database. A cursor is only
+ * meant for the filters and sort it was made with */
+@Getter
+public class PageCursor {
+    public static final String INVALID_CURSOR = "The page cursor is not valid";
+    private static final char SEPARATOR = ':';
+    private final long lastId;
+    private final String lastValue; // Null when the list is sorted by id
+
+    private PageCursor(long lastId, String lastValue) {
+        this.lastId = lastId;
+        this.lastValue = lastValue;
+    }
+
+    public static String encode(long lastId, String lastValue) {
+        String cursor = lastValue == null ? Long.toString(lastId) : lastId + String.valueOf(SEPARATOR) + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // A missing cursor means the first page and gives null
+    public static PageCursor decode(String cursor) throws InvalidCursorException {
+        if(cursor == null || cursor.isEmpty()){
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR); // The id comes first, the value may hold the separator
+            if(separator < 0){
+                return new PageCursor(Long.parseLong(decoded), null);
+            }
+            return new PageCursor(Long.parseLong(decoded.substring(0, separator)), decoded.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(INVALID_CURSOR);
+        }
+    }
+}
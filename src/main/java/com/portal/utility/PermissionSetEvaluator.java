@@ -0,0 +1,40 @@
+package com.portal.utility;
+
+import com.portal.domain.PermissionAuthenticationToken;
+import com.portal.domain.PermissionSet;
+import com.portal.domain.UserPrincipal;
+import com.portal.enumeration.Permission;
+import org.springframework.security.access.PermissionEvaluator;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.io.Serializable;
+
+/* Backs hasPermission(...) in @PreAuthorize, picked up by method security as the only PermissionEvaluator bean.
+ * Permissions are granted per role, not per object, so the target is ignored. For a JWT request the check is a map
+ * lookup of the permission name and a bitwise and on the set of the token, nothing is allocated */
+@Component
+public class PermissionSetEvaluator implements PermissionEvaluator {
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Object targetDomainObject, Object permission) {
+        Permission required = permission instanceof Permission ? (Permission) permission
+                : permission instanceof String ? Permission.fromAuthority((String) permission) : null;
+        return required != null && authentication != null && permissionsOf(authentication).has(required);
+    }
+
+    @Override
+    public boolean hasPermission(Authentication authentication, Serializable targetId, String targetType, Object permission) {
+        return hasPermission(authentication, null, permission);
+    }
+
+    private PermissionSet permissionsOf(Authentication authentication) {
+        if(authentication instanceof PermissionAuthenticationToken){
+            return ((PermissionAuthenticationToken) authentication).getPermissions();
+        }
+        if(authentication.getPrincipal() instanceof UserPrincipal){
+            return ((UserPrincipal) authentication.getPrincipal()).getPermissions();
+        }
+        return PermissionSet.of(authentication.getAuthorities()); // Any other kind of authentication
+    }
+}
@@ -0,0 +1,62 @@
+package com.portal.utility;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/* Fails the read that goes past maximumBytes, so an oversized upload is dropped after
+ * maximumBytes instead of being read to the end. isLimitExceeded tells that failure apart from others */
+public class SizeLimitedInputStream extends FilterInputStream {
+    public static final String LIMIT_EXCEEDED = "Stream is longer than the limit of %d bytes";
+    private final long maximumBytes;
+    private long bytesRead;
+    private boolean limitExceeded;
+
+    public SizeLimitedInputStream(InputStream inputStream, long maximumBytes) {
+        super(inputStream);
+        this.maximumBytes = maximumBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if(value != -1){
+            count(1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if(read > 0){
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long length) throws IOException {
+        long skipped = super.skip(length);
+        count(skipped);
+        return skipped;
+    }
+
+    // mark and reset would let bytes be counted twice
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    private void count(long bytes) throws IOException {
+        bytesRead += bytes;
+        if(bytesRead > maximumBytes){
+            limitExceeded = true;
+            throw new IOException(String.format(LIMIT_EXCEEDED, maximumBytes));
+        }
+    }
+}
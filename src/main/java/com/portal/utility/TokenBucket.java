@@ -0,0 +1,54 @@
+package com.portal.utility;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Lock-free token bucket written as GCRA (generic cell rate algorithm): instead of a token count it keeps
+ * the time at which the bucket will be full again, so taking a token is a single compare-and-set */
+public class TokenBucket {
+    private final int capacity;
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(int capacity, double tokensPerSecond, long now) {
+        this.capacity = capacity;
+        this.nanosPerToken = (long) (1_000_000_000L / tokensPerSecond);
+        this.burstNanos = capacity * nanosPerToken;
+        this.fullAt = new AtomicLong(now);
+    }
+
+    public boolean tryConsume(long now) {
+        while(true){
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanosPerToken;
+            if(next - now > burstNanos){
+                return false;
+            }
+            if(fullAt.compareAndSet(current, next)){
+                return true;
+            }
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int remaining(long now) {
+        long used = Math.max(fullAt.get() - now, 0);
+        return (int) ((burstNanos - used) / nanosPerToken);
+    }
+
+    public long nanosUntilFull(long now) {
+        return Math.max(fullAt.get() - now, 0);
+    }
+
+    public long nanosUntilNextToken(long now) {
+        return Math.max(fullAt.get() + nanosPerToken - burstNanos - now, 0);
+    }
+
+    // A full bucket holds no state worth keeping, dropping it is the same as starting a new one
+    public boolean isFull(long now) {
+        return fullAt.get() <= now;
+    }
+}
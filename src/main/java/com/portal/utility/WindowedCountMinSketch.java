@@ -0,0 +1,116 @@
+package com.portal.utility;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/* Count-min sketch over two consecutive time windows. Memory is fixed by depth x width no matter how many
+ * keys are counted, and every cell is an atomic int so increments never lock.
+ * Counts can be overestimated when keys share cells, never underestimated except right after reset.
+ * A count covers the current window and the one before it, so it decays to zero two windows after the last hit */
+public class WindowedCountMinSketch {
+    private final int depth;
+    private final int widthMask;
+    private final long windowMillis;
+    private final Object rotationLock = new Object();
+    private volatile Window current;
+    private volatile Window previous;
+
+    /**
+     * @param depth        number of hash rows, more rows means fewer overestimates
+     * @param width        cells per row, rounded up to a power of two
+     * @param windowMillis length of one window
+     */
+    public WindowedCountMinSketch(int depth, int width, long windowMillis) {
+        this.depth = depth;
+        int roundedWidth = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        this.widthMask = roundedWidth - 1;
+        this.windowMillis = windowMillis;
+        this.current = new Window(depth * roundedWidth, System.currentTimeMillis());
+    }
+
+    // Returns the count of the key including this increment
+    public int increment(String key) {
+        long hash = hash(key);
+        Window window = currentWindow();
+        int count = Integer.MAX_VALUE;
+        for(int row = 0; row < depth; row++){
+            count = Math.min(count, window.cells.incrementAndGet(cell(hash, row)));
+        }
+        return count + estimate(previous, hash);
+    }
+
+    public int estimate(String key) {
+        long hash = hash(key);
+        return estimate(currentWindow(), hash) + estimate(previous, hash);
+    }
+
+    /* A sketch cannot forget one key exactly, so the key's own estimate is taken off each of its cells.
+     * Other keys sharing those cells may lose up to that many counts */
+    public void reset(String key) {
+        long hash = hash(key);
+        reset(currentWindow(), hash);
+        reset(previous, hash);
+    }
+
+    private int estimate(Window window, long hash) {
+        if(window == null){
+            return 0;
+        }
+        int count = Integer.MAX_VALUE;
+        for(int row = 0; row < depth; row++){
+            count = Math.min(count, window.cells.get(cell(hash, row)));
+        }
+        return count;
+    }
+
+    private void reset(Window window, long hash) {
+        int count = estimate(window, hash);
+        if(count == 0){
+            return;
+        }
+        for(int row = 0; row < depth; row++){
+            window.cells.getAndUpdate(cell(hash, row), value -> Math.max(0, value - count));
+        }
+    }
+
+    private Window currentWindow() {
+        Window window = current;
+        long now = System.currentTimeMillis();
+        if(now - window.startedAt < windowMillis){
+            return window;
+        }
+        synchronized (rotationLock){
+            window = current;
+            if(now - window.startedAt >= windowMillis){
+                // Nothing carries over when more than one full window has passed without any traffic
+                previous = now - window.startedAt < 2 * windowMillis ? window : null;
+                window = new Window(window.cells.length(), now);
+                current = window;
+            }
+            return window;
+        }
+    }
+
+    // Double hashing: row i uses h1 + i * h2 so one 64 bit hash serves every row
+    private int cell(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * (widthMask + 1) + ((h1 + row * h2) & widthMask);
+    }
+
+    private long hash(String key) {
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
+    private static final class Window {
+        private final AtomicIntegerArray cells;
+        private final long startedAt;
+
+        private Window(int size, long startedAt) {
+            this.cells = new AtomicIntegerArray(size);
+            this.startedAt = startedAt;
+        }
+    }
+}
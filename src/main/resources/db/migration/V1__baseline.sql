@@ -0,0 +1,57 @@
+-- Schema as Hibernate created it with ddl-auto: update. Everything is "if not exists" so this also runs
+-- on databases that were created that way, adding whatever an older version of the app had not created yet
+
+create sequence if not exists hibernate_sequence start 1 increment 1;
+
+create table if not exists users (
+    id int8 not null,
+    user_id varchar(255),
+    first_name varchar(255),
+    last_name varchar(255),
+    username varchar(255),
+    password varchar(255),
+    email varchar(255),
+    profile_image_version int8,
+    last_login_date timestamp,
+    last_login_date_display timestamp,
+    join_date timestamp,
+    role varchar(255),
+    authorities bytea,
+    is_active boolean not null,
+    is_not_locked boolean not null,
+    primary key (id)
+);
+alter table users add column if not exists profile_image_version int8;
+
+create table if not exists refresh_token (
+    id int8 not null,
+    token_hash varchar(64) not null,
+    username varchar(255) not null,
+    created_at timestamp,
+    expires_at timestamp not null,
+    primary key (id)
+);
+create unique index if not exists ux_refresh_token_token_hash on refresh_token (token_hash);
+create index if not exists ix_refresh_token_expires_at on refresh_token (expires_at);
+create index if not exists ix_refresh_token_username on refresh_token (username);
+
+create table if not exists login_attempt (
+    attempt_key varchar(255) not null,
+    attempts int4 not null,
+    expires_at timestamp not null,
+    primary key (attempt_key)
+);
+create index if not exists ix_login_attempt_expires_at on login_attempt (expires_at);
+
+create table if not exists user_image (
+    id int8 not null,
+    user_id int8 not null,
+    image_size varchar(16),
+    content_type varchar(255) not null,
+    content_length int8 not null,
+    content_hash varchar(64) not null,
+    updated_at timestamp,
+    primary key (id)
+);
+alter table user_image add column if not exists image_size varchar(16);
+create unique index if not exists ux_user_image_user_id_image_size on user_image (user_id, image_size);
@@ -0,0 +1,7 @@
+-- Usernames and emails are unique regardless of case. Lookups go through lower(...) so they use these indexes.
+-- Fails if the table already holds duplicates, find them with:
+--   select lower(username), count(*) from users group by lower(username) having count(*) > 1;
+--   select lower(email), count(*) from users group by lower(email) having count(*) > 1;
+create unique index ux_users_username on users (lower(username));
+create unique index ux_users_email on users (lower(email));
+create unique index ux_users_user_id on users (user_id);
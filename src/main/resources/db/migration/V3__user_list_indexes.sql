@@ -0,0 +1,13 @@
+-- Indexes behind the filters and sort keys of the user list. Each ends with id, the tie breaker of every sort,
+-- so a page is read in index order and stops after size rows.
+-- Sorting by join date needs one on every row, all code paths set it, older rows get their first login or now.
+update users set join_date = coalesce(last_login_date, now()) where join_date is null;
+alter table users alter column join_date set not null;
+
+create index ix_users_role_id on users (role, id);
+create index ix_users_join_date_id on users (join_date, id);
+create index ix_users_role_join_date_id on users (role, join_date, id);
+create index ix_users_username_id on users (username, id);
+-- Locked and inactive users are few, partial indexes find them without indexing everyone else
+create index ix_users_locked_id on users (id) where is_not_locked = false;
+create index ix_users_inactive_id on users (id) where is_active = false;
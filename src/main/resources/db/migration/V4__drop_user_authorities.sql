@@ -0,0 +1,2 @@
+-- Authorities follow from the role (see Role), the copy kept on every user could only drift from it
+alter table users drop column authorities;
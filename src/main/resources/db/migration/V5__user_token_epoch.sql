@@ -0,0 +1,5 @@
+-- Persisted token epoch (see TokenEpochService). Existing users start at 0 so the tokens they hold stay valid,
+-- users created from now on start at their creation time so they never accept tokens issued to an earlier owner
+-- of the same username
+alter table users add column token_epoch bigint not null default 0;
+alter table users alter column token_epoch set default (extract(epoch from clock_timestamp()) * 1000)::bigint;
@@ -0,0 +1,97 @@
+package com.portal.benchmark;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.portal.domain.UserPrincipal;
+import com.portal.domain.Users;
+import com.portal.domain.VerifiedToken;
+import com.portal.service.TokenEpochService;
+import com.portal.utility.JWTTokenProvider;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import static com.portal.constant.SecurityConstant.AUTHORITIES;
+import static com.portal.constant.SecurityConstant.BARCA_JAMES_LLC;
+import static com.portal.enumeration.Role.ROLE_SUPER_ADMIN;
+import static java.util.Arrays.stream;
+
+/* Compares the old filter path (three verifier builds and three signature checks per request)
+ * with JWTTokenProvider.verifyToken on a cache miss and a cache hit.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.portal.benchmark.JwtVerificationBenchmark */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtVerificationBenchmark {
+    private static final String SECRET = "benchmark-secret";
+    // More distinct tokens than the cache holds so every call in cacheMiss verifies the signature
+    private static final int DISTINCT_TOKENS = 20_000;
+
+    private JWTTokenProvider jwtTokenProvider;
+    private String token;
+    private String[] tokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // Issues every token with the initial epoch instead of reading it from the database
+        TokenEpochService tokenEpochService = new TokenEpochService(null, 30) {
+            @Override
+            public long getEpoch(String username) {
+                return INITIAL_EPOCH;
+            }
+        };
+        jwtTokenProvider = new JWTTokenProvider(SECRET, tokenEpochService, false);
+        tokens = new String[DISTINCT_TOKENS];
+        for(int i = 0; i < DISTINCT_TOKENS; i++){
+            tokens[i] = jwtTokenProvider.generateJwtToken(new UserPrincipal(buildUser("user" + i)));
+        }
+        token = tokens[0];
+    }
+
+    @Benchmark
+    public List<GrantedAuthority> legacyThreeVerifications() {
+        String username = legacyVerifier().verify(token).getSubject();
+        boolean valid = username != null && !legacyVerifier().verify(token).getExpiresAt().before(new Date());
+        String[] claims = legacyVerifier().verify(token).getClaim(AUTHORITIES).asArray(String.class);
+        return valid ? stream(claims).map(SimpleGrantedAuthority::new).collect(Collectors.toList()) : null;
+    }
+
+    @Benchmark
+    public VerifiedToken verifyTokenCacheMiss() {
+        next = (next + 1) % DISTINCT_TOKENS;
+        return jwtTokenProvider.verifyToken(tokens[next]);
+    }
+
+    @Benchmark
+    public VerifiedToken verifyTokenCacheHit() {
+        return jwtTokenProvider.verifyToken(token);
+    }
+
+    private JWTVerifier legacyVerifier() {
+        return JWT.require(HMAC512(SECRET)).withIssuer(BARCA_JAMES_LLC).build();
+    }
+
+    private Users buildUser(String username) {
+        Users user = new Users();
+        user.setUsername(username);
+        user.setRole(ROLE_SUPER_ADMIN.name());
+        return user;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtVerificationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
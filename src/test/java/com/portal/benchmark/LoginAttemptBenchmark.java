@@ -0,0 +1,77 @@
+package com.portal.benchmark;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.portal.service.LoginAttemptService;
+import com.portal.service.impl.InMemoryLoginAttemptStore;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/* Failed logins from 8 threads at once, half of them on the same few usernames to force contention.
+ * guavaCache is the previous LoginAttemptService: a LoadingCache with a get then put increment.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.portal.benchmark.LoginAttemptBenchmark */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class LoginAttemptBenchmark {
+    private static final int HOT_USERNAMES = 4;
+    private static final int USERNAMES = 1_000_000;
+
+    private LoginAttemptService loginAttemptService;
+    private LoadingCache<String, Integer> loginAttemptCache;
+    private String[] usernames;
+
+    @Setup
+    public void setUp() {
+        loginAttemptService = new LoginAttemptService(new InMemoryLoginAttemptStore());
+        loginAttemptCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(15, MINUTES)
+                .maximumSize(100)
+                .build(new CacheLoader<String, Integer>() {
+                    @Override
+                    public Integer load(String key) {
+                        return 0;
+                    }
+                });
+        usernames = new String[USERNAMES];
+        for(int i = 0; i < USERNAMES; i++){
+            usernames[i] = "user" + i;
+        }
+    }
+
+    @Benchmark
+    public boolean sketch() {
+        String username = nextUsername();
+        loginAttemptService.addUserToLoginAttemptCache(username);
+        return loginAttemptService.hasExceededMaxAttempts(username);
+    }
+
+    @Benchmark
+    public boolean guavaCache() throws ExecutionException {
+        String username = nextUsername();
+        loginAttemptCache.put(username, loginAttemptCache.get(username) + 1);
+        return loginAttemptCache.get(username) >= LoginAttemptService.MAXIMUM_NUMBER_OF_ATTEMPTS;
+    }
+
+    private String nextUsername() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return random.nextBoolean() ? usernames[random.nextInt(HOT_USERNAMES)] : usernames[random.nextInt(USERNAMES)];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LoginAttemptBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.portal.benchmark;
+
+import com.portal.domain.PermissionAuthenticationToken;
+import com.portal.enumeration.Role;
+import com.portal.utility.PermissionSetEvaluator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.portal.constant.Authority.USER_DELETE;
+import static com.portal.constant.Authority.USER_UPDATE;
+import static java.util.Arrays.stream;
+
+/* Compares the old @PreAuthorize("hasAnyAuthority(...)") work (authorities streamed out of the String[] of the user,
+ * then copied into a set of strings for the lookup) with PermissionSetEvaluator on the permission set of a token.
+ * The GC profiler reports the bytes allocated per check next to the timings.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.portal.benchmark.PermissionCheckBenchmark */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermissionCheckBenchmark {
+    private String[] userAuthorities;
+    private Authentication legacyAuthentication;
+    private Authentication authentication;
+    private PermissionSetEvaluator permissionEvaluator;
+
+    @Setup
+    public void setUp() {
+        userAuthorities = Role.ROLE_HR.getAuthorities();
+        legacyAuthentication = new UsernamePasswordAuthenticationToken("user", null, legacyAuthorities());
+        authentication = new PermissionAuthenticationToken("user", Role.ROLE_HR.getPermissions().getGrantedAuthorities(),
+                Role.ROLE_HR.getPermissions());
+        permissionEvaluator = new PermissionSetEvaluator();
+    }
+
+    @Benchmark
+    public boolean legacyAuthoritiesGranted() {
+        return legacyHasAnyAuthority(legacyAuthorities(), USER_UPDATE);
+    }
+
+    @Benchmark
+    public boolean legacyAuthoritiesDenied() {
+        return legacyHasAnyAuthority(legacyAuthentication.getAuthorities(), USER_DELETE);
+    }
+
+    @Benchmark
+    public boolean permissionSetGranted() {
+        return permissionEvaluator.hasPermission(authentication, null, USER_UPDATE);
+    }
+
+    @Benchmark
+    public boolean permissionSetDenied() {
+        return permissionEvaluator.hasPermission(authentication, null, USER_DELETE);
+    }
+
+    // What UserPrincipal.getAuthorities() used to do on every call
+    private List<GrantedAuthority> legacyAuthorities() {
+        return stream(userAuthorities).map(SimpleGrantedAuthority::new).collect(Collectors.toList());
+    }
+
+    // What SecurityExpressionRoot.hasAnyAuthority does for a single authority
+    private boolean legacyHasAnyAuthority(Collection<? extends GrantedAuthority> authorities, String authority) {
+        return AuthorityUtils.authorityListToSet(authorities).contains(authority);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PermissionCheckBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class).build()).run();
+    }
+}
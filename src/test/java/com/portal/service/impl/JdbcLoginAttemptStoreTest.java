@@ -0,0 +1,86 @@
+package com.portal.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JdbcLoginAttemptStoreTest {
+    private static final long WINDOW = 200;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("login-attempt-schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void countsAreSharedBetweenNodes() {
+        JdbcLoginAttemptStore firstNode = new JdbcLoginAttemptStore(jdbcTemplate, WINDOW * 100, 0);
+        JdbcLoginAttemptStore secondNode = new JdbcLoginAttemptStore(jdbcTemplate, WINDOW * 100, 0);
+
+        assertEquals(1, firstNode.increment("u:jamie"));
+        assertEquals(2, secondNode.increment("u:jamie"));
+        assertEquals(3, firstNode.increment("u:jamie"));
+        assertEquals(3, secondNode.getAttempts("u:jamie"));
+        assertEquals(0, secondNode.getAttempts("u:someone-else"));
+    }
+
+    @Test
+    void resetRemovesTheCounter() {
+        JdbcLoginAttemptStore store = new JdbcLoginAttemptStore(jdbcTemplate, WINDOW * 100, 60_000);
+
+        store.increment("u:jamie");
+        store.increment("u:jamie");
+        store.reset("u:jamie");
+
+        assertEquals(0, store.getAttempts("u:jamie"));
+        assertEquals(1, store.increment("u:jamie"));
+    }
+
+    @Test
+    void nearCacheServesReadsUntilItExpires() {
+        JdbcLoginAttemptStore store = new JdbcLoginAttemptStore(jdbcTemplate, WINDOW * 100, 60_000);
+
+        assertEquals(0, store.getAttempts("u:jamie"));
+        jdbcTemplate.update("insert into login_attempt (attempt_key, attempts, expires_at) " +
+                "values ('u:jamie', 5, dateadd('SECOND', 60, current_timestamp))");
+
+        assertEquals(0, store.getAttempts("u:jamie"));
+        assertEquals(6, store.increment("u:jamie"));
+        assertEquals(6, store.getAttempts("u:jamie"));
+    }
+
+    @Test
+    void countRestartsAfterTheWindowAndExpiredRowsAreDeleted() throws InterruptedException {
+        JdbcLoginAttemptStore store = new JdbcLoginAttemptStore(jdbcTemplate, WINDOW, 0);
+
+        store.increment("u:jamie");
+        store.increment("ip:10.0.0.1");
+        store.increment("u:jamie");
+        Thread.sleep(WINDOW + 50);
+
+        assertEquals(0, store.getAttempts("u:jamie"));
+        assertEquals(1, store.increment("u:jamie"));
+
+        store.deleteExpiredAttempts();
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from login_attempt", Integer.class));
+    }
+}
@@ -0,0 +1,6 @@
+create table login_attempt (
+    attempt_key varchar(255) not null primary key,
+    attempts integer not null,
+    expires_at timestamp not null
+);
+create index ix_login_attempt_expires_at on login_attempt (expires_at);